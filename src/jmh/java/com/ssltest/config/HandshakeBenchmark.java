@@ -0,0 +1,179 @@
+package com.ssltest.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整握手与会话恢复的每秒握手数
+ * 服务端引擎由端点按SNI创建（含握手统计的包装），与连接器处理新连接的路径一致；
+ * 客户端与服务端在内存中交换TLS记录，不经过网络，结果只反映握手本身的CPU开销
+ * 协议版本由主机配置的协议和加密套件决定，启动时输出实际协商的版本
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandshakeBenchmark {
+
+    private static final String HOST = "www.example.com";
+    private static final int PORT = 8443;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SniNioEndpoint endpoint;
+
+    private SSLContext clientContext;
+
+    private final ByteBuffer clientToServer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer serverToClient = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer clientApp = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer serverApp = ByteBuffer.allocate(BUFFER_SIZE);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPair keyPair = TlsFixtures.generateKeyPair();
+        endpoint = TlsFixtures.initEndpoint(TlsFixtures.keyStore(keyPair, TlsFixtures.certificate(keyPair, "localhost")));
+        KeyStore keyStore = TlsFixtures.keyStore(keyPair, TlsFixtures.certificate(keyPair, HOST));
+        endpoint.bindCertificate(HOST, Collections.singleton(HOST), TlsFixtures.hostConfig(HOST, keyStore),
+                new RotatingKeyManager(TlsFixtures.keyManager(keyStore), endpoint.getHandshakeStatistics()));
+
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, new TrustManager[] {new TrustAllManager()}, null);
+
+        // 第一次握手让客户端缓存会话，再确认后续握手确实是会话恢复
+        String protocol = resumedHandshake().getProtocol();
+        long resumedHandshakes = endpoint.getResumedHandshakes();
+        // 会话恢复按会话创建时间（毫秒）早于连接开始判断，避免两次握手落在同一毫秒
+        Thread.sleep(1);
+        resumedHandshake();
+        if (endpoint.getResumedHandshakes() != resumedHandshakes + 1) {
+            throw new IllegalStateException("会话未恢复: " + protocol);
+        }
+        System.out.printf("%n协商协议: %s%n", protocol);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        endpoint.destroy();
+    }
+
+    /**
+     * 客户端引擎不带对端地址，不会查找会话缓存，每次都是完整握手
+     */
+    @Benchmark
+    public SSLSession fullHandshake() throws SSLException {
+        return handshake(clientEngine(clientContext.createSSLEngine()));
+    }
+
+    /**
+     * 同一对端地址复用客户端缓存的会话（TLS 1.2为Session ID或Session Ticket，TLS 1.3为PSK）
+     */
+    @Benchmark
+    public SSLSession resumedHandshake() throws SSLException {
+        return handshake(clientEngine(clientContext.createSSLEngine(HOST, PORT)));
+    }
+
+    private SSLEngine clientEngine(SSLEngine engine) {
+        engine.setUseClientMode(true);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setServerNames(Collections.singletonList(new SNIHostName(HOST)));
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    private SSLEngine serverEngine() {
+        // 只有一张证书，无需按客户端加密套件选择
+        return endpoint.createSSLEngine(HOST, Collections.emptyList(), null);
+    }
+
+    /**
+     * 交换TLS记录直到双方握手完成且没有待发送的数据（包括TLS 1.3握手后下发的NewSessionTicket）
+     */
+    private SSLSession handshake(SSLEngine client) throws SSLException {
+        SSLEngine server = serverEngine();
+        clientToServer.clear();
+        serverToClient.clear();
+        client.beginHandshake();
+        server.beginHandshake();
+        while (true) {
+            int produced = wrap(client, clientToServer) + wrap(server, serverToClient);
+            int consumed = unwrap(server, clientToServer, serverApp) + unwrap(client, serverToClient, clientApp);
+            if (produced == 0 && consumed == 0
+                    && client.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING
+                    && server.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING) {
+                return client.getSession();
+            }
+        }
+    }
+
+    private static int wrap(SSLEngine engine, ByteBuffer network) throws SSLException {
+        int produced = engine.wrap(ByteBuffer.allocate(0), network).bytesProduced();
+        runTasks(engine);
+        return produced;
+    }
+
+    private static int unwrap(SSLEngine engine, ByteBuffer network, ByteBuffer app) throws SSLException {
+        network.flip();
+        int consumed = 0;
+        while (network.hasRemaining()) {
+            int bytes = engine.unwrap(network, app).bytesConsumed();
+            runTasks(engine);
+            if (bytes == 0) {
+                break;
+            }
+            consumed += bytes;
+        }
+        network.compact();
+        app.clear();
+        return consumed;
+    }
+
+    private static void runTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ssltest.config;
+
+/**
+ * 基准测试中估算常驻堆内存：多次GC后取已用内存的最小值
+ */
+final class HeapUsage {
+
+    private static final int GC_ROUNDS = 5;
+
+    private HeapUsage() {
+    }
+
+    static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
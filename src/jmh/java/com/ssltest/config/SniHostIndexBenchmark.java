@@ -0,0 +1,106 @@
+package com.ssltest.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SNI索引的查找延迟和每个域名占用的堆内存
+ * 域名按租户分布在 zoneCount 个区域下，每个区域另有一张通配符证书；
+ * 查询的主机名随机打乱，避免只命中CPU缓存中的少数节点
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SniHostIndexBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 16;
+
+    @Param({"100000"})
+    public int nameCount;
+
+    @Param({"1000"})
+    public int zoneCount;
+
+    private SniHostIndex<String> index;
+
+    private String[] exactQueries;
+
+    private String[] wildcardQueries;
+
+    private String[] missQueries;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        long heapBefore = HeapUsage.used();
+        index = new SniHostIndex<>();
+        for (int i = 0; i < nameCount; i++) {
+            String host = host(i);
+            index.bind(host, Collections.singleton(host), host);
+        }
+        for (int z = 0; z < zoneCount; z++) {
+            String wildcard = "*." + zone(z);
+            index.bind(wildcard, Collections.singleton(wildcard), wildcard);
+        }
+        long bytes = HeapUsage.used() - heapBefore;
+        System.out.printf("%n索引域名: %d，字典树节点: %d，每个域名占用堆: %d 字节%n",
+                index.size(), index.nodeCount(), bytes / index.size());
+
+        Random random = new Random(42);
+        exactQueries = new String[QUERY_COUNT];
+        wildcardQueries = new String[QUERY_COUNT];
+        missQueries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            int n = random.nextInt(nameCount);
+            exactQueries[i] = host(n);
+            wildcardQueries[i] = "other" + n + "." + zone(n % zoneCount);
+            missQueries[i] = "host" + n + ".unknown" + n + ".example.net";
+        }
+    }
+
+    @Benchmark
+    public String lookupExact() {
+        return index.lookup(exactQueries[next()]);
+    }
+
+    @Benchmark
+    public String lookupWildcard() {
+        return index.lookup(wildcardQueries[next()]);
+    }
+
+    @Benchmark
+    public String lookupMiss() {
+        return index.lookup(missQueries[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (QUERY_COUNT - 1);
+        return cursor;
+    }
+
+    private String host(int i) {
+        return "host" + i + "." + zone(i % zoneCount);
+    }
+
+    private static String zone(int z) {
+        return "tenant" + z + ".example.com";
+    }
+}
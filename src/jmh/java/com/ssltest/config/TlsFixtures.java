@@ -0,0 +1,113 @@
+package com.ssltest.config;
+
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate.Type;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基准测试共用的证书和连接器构造，主机配置与 SSLCertificateManager 保持一致
+ */
+final class TlsFixtures {
+
+    static final String PASSWORD = "changeit";
+    static final String KEY_ALIAS = "server";
+    static final String DEFAULT_HOST_NAME = "_default_";
+
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    private TlsFixtures() {
+    }
+
+    static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * 自签名证书，第一个域名作为CN，所有域名写入SAN
+     */
+    static X509Certificate certificate(KeyPair keyPair, String... dnsNames) throws Exception {
+        Date notBefore = new Date();
+        Date notAfter = new Date(notBefore.getTime() + TimeUnit.DAYS.toMillis(90));
+        X500Name subject = new X500Name("CN=" + dnsNames[0]);
+        GeneralName[] names = new GeneralName[dnsNames.length];
+        for (int i = 0; i < dnsNames.length; i++) {
+            names[i] = new GeneralName(GeneralName.dNSName, dnsNames[i]);
+        }
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject,
+                BigInteger.valueOf(SERIAL.incrementAndGet()), notBefore, notAfter, subject, keyPair.getPublic());
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(names));
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    static KeyStore keyStore(KeyPair keyPair, X509Certificate certificate) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(KEY_ALIAS, keyPair.getPrivate(), PASSWORD.toCharArray(), new X509Certificate[] {certificate});
+        return keyStore;
+    }
+
+    static X509ExtendedKeyManager keyManager(KeyStore keyStore) throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        for (KeyManager keyManager : kmf.getKeyManagers()) {
+            if (keyManager instanceof X509ExtendedKeyManager) {
+                return (X509ExtendedKeyManager) keyManager;
+            }
+        }
+        throw new IllegalStateException("未找到X509密钥管理器");
+    }
+
+    static SSLHostConfig hostConfig(String hostName, KeyStore keyStore) {
+        SSLHostConfig sslHostConfig = new SSLHostConfig();
+        sslHostConfig.setHostName(hostName);
+
+        SSLHostConfigCertificate cert = new SSLHostConfigCertificate(sslHostConfig, Type.RSA);
+        cert.setCertificateKeystore(keyStore);
+        cert.setCertificateKeyAlias(KEY_ALIAS);
+        cert.setCertificateKeystorePassword(PASSWORD);
+        cert.setCertificateKeyPassword(PASSWORD);
+
+        sslHostConfig.setProtocols("TLSv1.2+TLSv1.3");
+        sslHostConfig.setCiphers("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256,TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384");
+        sslHostConfig.setSessionCacheSize(20480);
+        sslHostConfig.setSessionTimeout(86400);
+        sslHostConfig.addCertificate(cert);
+        return sslHostConfig;
+    }
+
+    /**
+     * 在回环地址的随机端口上初始化HTTPS端点（不启动请求处理），SSLContext由端点按主机配置创建
+     */
+    static SniNioEndpoint initEndpoint(KeyStore defaultKeyStore) throws Exception {
+        SniNioEndpoint endpoint = new SniNioEndpoint();
+        endpoint.setAddress(InetAddress.getLoopbackAddress());
+        endpoint.setPort(0);
+        endpoint.setSSLEnabled(true);
+        endpoint.addSslHostConfig(hostConfig(DEFAULT_HOST_NAME, defaultKeyStore));
+        endpoint.init();
+        return endpoint;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ssltest.config;
+
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 租户子域名逐个签发与共用一张通配符证书的对比
+ * 每次迭代安装 hostCount 个租户域名的证书（KeyStore、SSLHostConfig、SSLContext、SNI索引），
+ * 迭代结束时输出证书订单数和每个域名占用的堆内存，然后全部卸载
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WildcardFootprintBenchmark {
+
+    private static final String ZONE = "tenant.example.com";
+
+    @Param({"1000"})
+    public int hostCount;
+
+    private KeyPair keyPair;
+
+    // 预先签好的DER编码证书，解析和KeyStore构造计入安装开销
+    private byte[][] tenantCertificates;
+
+    private byte[] wildcardCertificate;
+
+    private SniNioEndpoint endpoint;
+
+    private final List<String> installed = new ArrayList<>();
+
+    private long heapBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        keyPair = TlsFixtures.generateKeyPair();
+        tenantCertificates = new byte[hostCount][];
+        for (int i = 0; i < hostCount; i++) {
+            tenantCertificates[i] = TlsFixtures.certificate(keyPair, tenant(i)).getEncoded();
+        }
+        wildcardCertificate = TlsFixtures.certificate(keyPair, "*." + ZONE).getEncoded();
+        endpoint = TlsFixtures.initEndpoint(TlsFixtures.keyStore(keyPair, TlsFixtures.certificate(keyPair, "localhost")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        endpoint.destroy();
+    }
+
+    @Setup(Level.Iteration)
+    public void recordHeap() {
+        heapBefore = HeapUsage.used();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportAndUninstall() {
+        long bytes = HeapUsage.used() - heapBefore;
+        System.out.printf("%n证书订单: %d，域名: %d，每个域名占用堆: %d 字节%n", installed.size(), hostCount, bytes / hostCount);
+        for (String id : installed) {
+            endpoint.unbindCertificate(id);
+        }
+        installed.clear();
+    }
+
+    @Benchmark
+    public SSLHostConfig perTenantCertificates() throws Exception {
+        for (int i = 0; i < hostCount; i++) {
+            install(tenant(i), Collections.singleton(tenant(i)), tenantCertificates[i]);
+        }
+        return resolveAll();
+    }
+
+    @Benchmark
+    public SSLHostConfig wildcardCertificate() throws Exception {
+        install("*." + ZONE, Collections.singleton("*." + ZONE), wildcardCertificate);
+        return resolveAll();
+    }
+
+    private void install(String id, Set<String> hostNames, byte[] der) throws Exception {
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(der));
+        KeyStore keyStore = TlsFixtures.keyStore(keyPair, certificate);
+        endpoint.bindCertificate(id, hostNames, TlsFixtures.hostConfig(id, keyStore),
+                new RotatingKeyManager(TlsFixtures.keyManager(keyStore), endpoint.getHandshakeStatistics()));
+        installed.add(id);
+    }
+
+    /**
+     * 确认每个租户域名都解析到已安装的证书而不是默认证书
+     */
+    private SSLHostConfig resolveAll() {
+        SSLHostConfig last = null;
+        for (int i = 0; i < hostCount; i++) {
+            last = endpoint.getSSLHostConfig(tenant(i));
+            if (TlsFixtures.DEFAULT_HOST_NAME.equals(last.getHostName())) {
+                throw new IllegalStateException("域名未命中证书: " + tenant(i));
+            }
+        }
+        return last;
+    }
+
+    private static String tenant(int i) {
+        return "t" + i + "." + ZONE;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 批量续期的证书写入吞吐（行/秒）
+ * 每次调用续期 renewals 个已存在的域名，写入H2文件库（每批提交后同步刷盘），迭代结束时输出每秒写入行数：
+ * bulkRenewal 先提交全部写入再统一等待，由持久化队列合并成批；sequentialRenewal 逐个等待，每批只有一行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CertificateWriteBehindBenchmark {
+
+    private static final String CREATE_CERTIFICATES_SQL = "CREATE TABLE certificates ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, domain VARCHAR(255) NOT NULL UNIQUE, "
+            + "certificate_pem CHARACTER LARGE OBJECT, chain_fingerprints VARCHAR(1024), "
+            + "private_key_pem CHARACTER LARGE OBJECT, issued_at TIMESTAMP NOT NULL, expires_at TIMESTAMP NOT NULL, "
+            + "status VARCHAR(20), acme_account_url VARCHAR(512))";
+
+    private static final String CREATE_INTERMEDIATES_SQL = "CREATE TABLE intermediate_certificates ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, fingerprint VARCHAR(64) NOT NULL UNIQUE, "
+            + "subject VARCHAR(512), certificate_pem CHARACTER LARGE OBJECT, ref_count INT NOT NULL)";
+
+    // 与真实RSA证书和PKCS#8私钥的PEM长度相当
+    private static final int CERTIFICATE_PEM_LENGTH = 1800;
+    private static final int PRIVATE_KEY_PEM_LENGTH = 1700;
+
+    @Param({"10000"})
+    public int renewals;
+
+    private Path directory;
+
+    private HikariDataSource dataSource;
+
+    private CertificateWriteBehindStore store;
+
+    private List<CertificateEntity> certificates;
+
+    private List<Intermediate> intermediates;
+
+    private long iterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("certdb");
+        String url = "jdbc:h2:file:" + directory.resolve("certdb");
+        // 与应用相同使用连接池，连接保持打开，数据库不会在每条语句后关闭
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CREATE_CERTIFICATES_SQL);
+        jdbcTemplate.execute(CREATE_INTERMEDIATES_SQL);
+
+        store = new CertificateWriteBehindStore();
+        ReflectionTestUtils.setField(store, "queueCapacity", renewals);
+        ReflectionTestUtils.setField(store, "batchSize", 500);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 100L);
+        ReflectionTestUtils.setField(store, "enqueueTimeoutSeconds", 30L);
+        ReflectionTestUtils.setField(store, "shutdownTimeoutSeconds", 60L);
+        ReflectionTestUtils.setField(store, "datasourceUrl", url);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(store, "certificateInventory", new CertificateInventory());
+        ReflectionTestUtils.setField(store, "intermediateCache", new IntermediateCertificateCache());
+        store.start();
+
+        Intermediate intermediate = new Intermediate(repeat('0', 64), "CN=Benchmark Intermediate",
+                repeat('I', CERTIFICATE_PEM_LENGTH), null);
+        intermediates = Collections.singletonList(intermediate);
+        certificates = new ArrayList<>(renewals);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < renewals; i++) {
+            certificates.add(CertificateEntity.builder()
+                    .domain("host" + i + ".example.com")
+                    .certificatePem(repeat('C', CERTIFICATE_PEM_LENGTH))
+                    .chainFingerprints(intermediate.getFingerprint())
+                    .privateKeyPem(repeat('K', PRIVATE_KEY_PEM_LENGTH))
+                    .issuedAt(now)
+                    .expiresAt(now.plusDays(90))
+                    .status("ACTIVE")
+                    .acmeAccountUrl("https://acme.example.com/acct/1")
+                    .build());
+        }
+        // 续期覆盖已有记录
+        bulkRenewal();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        store.stop();
+        dataSource.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startClock() {
+        iterationStart = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportRate() {
+        double seconds = (System.nanoTime() - iterationStart) / 1e9;
+        System.out.printf("%n续期证书: %d，每秒写入: %.0f 行%n", renewals, renewals / seconds);
+    }
+
+    @Benchmark
+    public void bulkRenewal() throws Exception {
+        List<CompletableFuture<Void>> writes = new ArrayList<>(renewals);
+        for (CertificateEntity certificate : certificates) {
+            writes.add(store.save(certificate, intermediates));
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get();
+    }
+
+    @Benchmark
+    public void sequentialRenewal() throws Exception {
+        for (CertificateEntity certificate : certificates) {
+            store.save(certificate, intermediates).get();
+        }
+    }
+
+    private static String repeat(char c, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ssltest;
 
+import com.ssltest.config.TlsSystemProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.retry.annotation.EnableRetry;
@@ -10,6 +11,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 public class SSLTestApplication {
     public static void main(String[] args) {
-        SpringApplication.run(SSLTestApplication.class, args);
+        SpringApplication application = new SpringApplication(SSLTestApplication.class);
+        // TLS系统属性需在JSSE初始化前设置
+        application.addListeners(new TlsSystemProperties());
+        application.run(args);
     }
 } 
\ No newline at end of file
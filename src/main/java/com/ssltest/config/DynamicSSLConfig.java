@@ -1,7 +1,9 @@
 package com.ssltest.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.Engine;
 import org.apache.catalina.connector.Connector;
+import org.apache.catalina.core.AprLifecycleListener;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
@@ -16,9 +18,12 @@ public class DynamicSSLConfig implements WebServerFactoryCustomizer<TomcatServle
     @Value("${server.http.port:80}")
     private int httpPort;
     
-    @Value("${server.port:8443}")
+    @Value("${server.https.port:8443}")
     private int httpsPort;
 
+    @Value("${server.ssl.implementation:jsse}")
+    private String sslImplementation;
+
     @Override
     public void customize(TomcatServletWebServerFactory factory) {
         // 配置HTTP连接器（用于ACME验证）
@@ -31,5 +36,11 @@ public class DynamicSSLConfig implements WebServerFactoryCustomizer<TomcatServle
         connector.setRedirectPort(httpsPort);
         
         factory.addAdditionalTomcatConnectors(connector);
+
+        if ("openssl".equalsIgnoreCase(sslImplementation)) {
+            // 加载tomcat-native并初始化OpenSSL，需挂在Server上，在Tomcat启动前注册
+            factory.addContextCustomizers(context -> ((Engine) context.getParent().getParent())
+                    .getService().getServer().addLifecycleListener(new AprLifecycleListener()));
+        }
     }
 } 
\ No newline at end of file
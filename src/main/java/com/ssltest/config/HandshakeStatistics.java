@@ -0,0 +1,69 @@
+package com.ssltest.config;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TLS握手计数
+ * 每个新连接创建SSLEngine记为一次握手，由 {@link HandshakeTrackingEngine} 记录首次握手完成（区分会话恢复）或失败；
+ * 服务端选择证书（密钥管理器被调用）记为一次完整握手，OpenSSL不调用Java密钥管理器，完整握手数不计入
+ */
+public class HandshakeStatistics {
+
+    private final LongAdder handshakes = new LongAdder();
+
+    private final LongAdder fullHandshakes = new LongAdder();
+
+    private final LongAdder completedHandshakes = new LongAdder();
+
+    private final LongAdder resumedHandshakes = new LongAdder();
+
+    private final LongAdder failedHandshakes = new LongAdder();
+
+    public void recordHandshake() {
+        handshakes.increment();
+    }
+
+    public void recordFullHandshake() {
+        fullHandshakes.increment();
+    }
+
+    public void recordCompletedHandshake(boolean resumed) {
+        completedHandshakes.increment();
+        if (resumed) {
+            resumedHandshakes.increment();
+        }
+    }
+
+    public void recordFailedHandshake() {
+        failedHandshakes.increment();
+    }
+
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long getCompletedHandshakes() {
+        return completedHandshakes.sum();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    public long getFailedHandshakes() {
+        return failedHandshakes.sum();
+    }
+
+    /**
+     * 未完成也未失败的握手：进行中的，以及未发完握手消息就断开的连接
+     */
+    public long getIncompleteHandshakes() {
+        // 先读完成和失败，再读开始数，并发时不会得到负数
+        long finished = getCompletedHandshakes() + getFailedHandshakes();
+        return Math.max(0, getHandshakes() - finished);
+    }
+}
@@ -0,0 +1,202 @@
+package com.ssltest.config;
+
+import org.apache.tomcat.util.compat.JreCompat;
+import org.apache.tomcat.util.net.SSLUtil;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+
+/**
+ * 记录首次握手结果的SSLEngine包装
+ * 握手完成时会话的创建时间早于本连接开始时间即为会话恢复（Session ID、Session Ticket恢复的会话保留原创建时间）；
+ * 握手完成前wrap/unwrap抛出异常记为失败，既未完成也未失败的（扫描器、发出ClientHello后断开）由统计按差值得出
+ */
+final class HandshakeTrackingEngine extends SSLEngine implements SSLUtil.ProtocolInfo {
+
+    private final SSLEngine delegate;
+
+    private final HandshakeStatistics statistics;
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private boolean recorded;
+
+    HandshakeTrackingEngine(SSLEngine delegate, HandshakeStatistics statistics) {
+        super(delegate.getPeerHost(), delegate.getPeerPort());
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst) throws SSLException {
+        try {
+            return track(delegate.wrap(srcs, offset, length, dst));
+        } catch (SSLException | RuntimeException e) {
+            fail();
+            throw e;
+        }
+    }
+
+    @Override
+    public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length) throws SSLException {
+        try {
+            return track(delegate.unwrap(src, dsts, offset, length));
+        } catch (SSLException | RuntimeException e) {
+            fail();
+            throw e;
+        }
+    }
+
+    private SSLEngineResult track(SSLEngineResult result) {
+        if (!recorded && result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+            recorded = true;
+            statistics.recordCompletedHandshake(delegate.getSession().getCreationTime() < startMillis);
+        }
+        return result;
+    }
+
+    private void fail() {
+        if (!recorded) {
+            recorded = true;
+            statistics.recordFailedHandshake();
+        }
+    }
+
+    @Override
+    public String getNegotiatedProtocol() {
+        if (delegate instanceof SSLUtil.ProtocolInfo) {
+            return ((SSLUtil.ProtocolInfo) delegate).getNegotiatedProtocol();
+        }
+        return JreCompat.isAlpnSupported() ? JreCompat.getInstance().getApplicationProtocol(delegate) : null;
+    }
+
+    @Override
+    public Runnable getDelegatedTask() {
+        return delegate.getDelegatedTask();
+    }
+
+    @Override
+    public void closeInbound() throws SSLException {
+        delegate.closeInbound();
+    }
+
+    @Override
+    public boolean isInboundDone() {
+        return delegate.isInboundDone();
+    }
+
+    @Override
+    public void closeOutbound() {
+        delegate.closeOutbound();
+    }
+
+    @Override
+    public boolean isOutboundDone() {
+        return delegate.isOutboundDone();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public String[] getEnabledCipherSuites() {
+        return delegate.getEnabledCipherSuites();
+    }
+
+    @Override
+    public void setEnabledCipherSuites(String[] suites) {
+        delegate.setEnabledCipherSuites(suites);
+    }
+
+    @Override
+    public String[] getSupportedProtocols() {
+        return delegate.getSupportedProtocols();
+    }
+
+    @Override
+    public String[] getEnabledProtocols() {
+        return delegate.getEnabledProtocols();
+    }
+
+    @Override
+    public void setEnabledProtocols(String[] protocols) {
+        delegate.setEnabledProtocols(protocols);
+    }
+
+    @Override
+    public SSLSession getSession() {
+        return delegate.getSession();
+    }
+
+    @Override
+    public SSLSession getHandshakeSession() {
+        return delegate.getHandshakeSession();
+    }
+
+    @Override
+    public void beginHandshake() throws SSLException {
+        delegate.beginHandshake();
+    }
+
+    @Override
+    public HandshakeStatus getHandshakeStatus() {
+        return delegate.getHandshakeStatus();
+    }
+
+    @Override
+    public void setUseClientMode(boolean mode) {
+        delegate.setUseClientMode(mode);
+    }
+
+    @Override
+    public boolean getUseClientMode() {
+        return delegate.getUseClientMode();
+    }
+
+    @Override
+    public void setNeedClientAuth(boolean need) {
+        delegate.setNeedClientAuth(need);
+    }
+
+    @Override
+    public boolean getNeedClientAuth() {
+        return delegate.getNeedClientAuth();
+    }
+
+    @Override
+    public void setWantClientAuth(boolean want) {
+        delegate.setWantClientAuth(want);
+    }
+
+    @Override
+    public boolean getWantClientAuth() {
+        return delegate.getWantClientAuth();
+    }
+
+    @Override
+    public void setEnableSessionCreation(boolean flag) {
+        delegate.setEnableSessionCreation(flag);
+    }
+
+    @Override
+    public boolean getEnableSessionCreation() {
+        return delegate.getEnableSessionCreation();
+    }
+
+    @Override
+    public SSLParameters getSSLParameters() {
+        return delegate.getSSLParameters();
+    }
+
+    @Override
+    public void setSSLParameters(SSLParameters params) {
+        delegate.setSSLParameters(params);
+    }
+}
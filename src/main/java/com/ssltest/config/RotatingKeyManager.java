@@ -0,0 +1,126 @@
+package com.ssltest.config;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+/**
+ * 可替换密钥材料的密钥管理器
+ * 证书续期时只替换内部的委托，SSLContext及其会话缓存、Session Ticket密钥保持不变，已建立的会话可以继续恢复
+ */
+public class RotatingKeyManager extends X509ExtendedKeyManager {
+
+    private static final char GENERATION_SEPARATOR = '|';
+
+    private static final class Generation {
+        private final int id;
+        private final X509ExtendedKeyManager keyManager;
+
+        private Generation(int id, X509ExtendedKeyManager keyManager) {
+            this.id = id;
+            this.keyManager = keyManager;
+        }
+    }
+
+    private final HandshakeStatistics statistics;
+
+    private volatile Generation current;
+
+    // 切换瞬间正在握手的连接仍按旧别名取证书和私钥
+    private volatile Generation previous;
+
+    public RotatingKeyManager(X509ExtendedKeyManager delegate, HandshakeStatistics statistics) {
+        this.current = new Generation(0, delegate);
+        this.statistics = statistics;
+    }
+
+    public synchronized void update(X509ExtendedKeyManager delegate) {
+        previous = current;
+        current = new Generation(previous.id + 1, delegate);
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+        Generation generation = current;
+        return recordServerAlias(generation, generation.keyManager.chooseEngineServerAlias(keyType, issuers, engine));
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        Generation generation = current;
+        return recordServerAlias(generation, generation.keyManager.chooseServerAlias(keyType, issuers, socket));
+    }
+
+    private String recordServerAlias(Generation generation, String alias) {
+        if (alias == null) {
+            return null;
+        }
+        statistics.recordFullHandshake();
+        return generation.id + String.valueOf(GENERATION_SEPARATOR) + alias;
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        Generation generation = current;
+        String[] aliases = generation.keyManager.getServerAliases(keyType, issuers);
+        if (aliases != null) {
+            for (int i = 0; i < aliases.length; i++) {
+                aliases[i] = generation.id + String.valueOf(GENERATION_SEPARATOR) + aliases[i];
+            }
+        }
+        return aliases;
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        return null;
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+        return null;
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+        return null;
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        Generation generation = resolve(alias);
+        return generation == null ? null : generation.keyManager.getCertificateChain(stripGeneration(alias));
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        Generation generation = resolve(alias);
+        return generation == null ? null : generation.keyManager.getPrivateKey(stripGeneration(alias));
+    }
+
+    private Generation resolve(String alias) {
+        int separator = alias == null ? -1 : alias.indexOf(GENERATION_SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        int id;
+        try {
+            id = Integer.parseInt(alias.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Generation generation = current;
+        if (generation.id == id) {
+            return generation;
+        }
+        generation = previous;
+        return generation != null && generation.id == id ? generation : null;
+    }
+
+    private String stripGeneration(String alias) {
+        return alias.substring(alias.indexOf(GENERATION_SEPARATOR) + 1);
+    }
+}
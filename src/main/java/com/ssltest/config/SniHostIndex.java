@@ -0,0 +1,265 @@
+package com.ssltest.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SNI主机名索引，按反转标签组织的字典树（com -> example -> www）
+ * 通配符 *.example.com 挂在 example.com 节点上，只匹配一级子域名；精确匹配优先于通配符
+ * 同一证书的所有域名共享一个绑定，续期时只替换绑定的值，所有域名同时切换
+ * 读操作无锁，写操作串行
+ */
+public class SniHostIndex<T> {
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    private static final class Node<T> {
+        private volatile Map<String, Node<T>> children;
+        private volatile Binding<T> exact;
+        private volatile Binding<T> wildcard;
+
+        private Node<T> child(String label) {
+            Map<String, Node<T>> map = children;
+            return map == null ? null : map.get(label);
+        }
+
+        private Node<T> getOrCreateChild(String label) {
+            if (children == null) {
+                children = new ConcurrentHashMap<>(4);
+            }
+            return children.computeIfAbsent(label, k -> new Node<>());
+        }
+
+        private boolean isEmpty() {
+            Map<String, Node<T>> map = children;
+            return exact == null && wildcard == null && (map == null || map.isEmpty());
+        }
+    }
+
+    private static final class Binding<T> {
+        private final Set<String> names;
+        private volatile T value;
+
+        private Binding(Set<String> names, T value) {
+            this.names = names;
+            this.value = value;
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+
+    // 绑定标识（证书域名） -> 绑定，仅在写锁内访问
+    private final Map<String, Binding<T>> bindings = new HashMap<>();
+
+    private int nameCount;
+
+    /**
+     * 查找SNI主机名对应的值
+     * @return 未匹配时返回null
+     */
+    public T lookup(String hostName) {
+        if (hostName == null || hostName.isEmpty()) {
+            return null;
+        }
+        String host = normalize(hostName);
+        Node<T> node = root;
+        Binding<T> wildcard = null;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            if (dot < 0 && node != root) {
+                // 只剩最左侧一个标签时，当前节点上的通配符可以匹配
+                wildcard = node.wildcard;
+            }
+            Node<T> child = node.child(host.substring(dot + 1, end));
+            if (child == null) {
+                return wildcard != null ? wildcard.value : null;
+            }
+            node = child;
+            end = dot;
+        }
+        Binding<T> exact = node.exact;
+        if (exact != null) {
+            return exact.value;
+        }
+        return wildcard != null ? wildcard.value : null;
+    }
+
+    /**
+     * 将一组域名（可含通配符）绑定到同一个值
+     * 域名集合不变时只替换值，所有域名原子切换；集合变化时先挂新域名再摘除旧域名
+     * @param id 绑定标识，同一证书续期时保持不变
+     * @return 被替换的旧值，没有则为null
+     */
+    public synchronized T bind(String id, Set<String> names, T value) {
+        Set<String> normalized = new HashSet<>();
+        for (String name : names) {
+            normalized.add(normalize(name));
+        }
+        if (normalized.size() == 1) {
+            // 单域名证书占绝大多数，避免每个绑定持有一个HashSet
+            normalized = Collections.singleton(normalized.iterator().next());
+        }
+
+        Binding<T> previous = bindings.get(id);
+        if (previous != null && previous.names.equals(normalized)) {
+            T oldValue = previous.value;
+            previous.value = value;
+            return oldValue;
+        }
+
+        Binding<T> binding = new Binding<>(normalized, value);
+        for (String name : normalized) {
+            attach(name, binding);
+        }
+        bindings.put(id, binding);
+        if (previous == null) {
+            return null;
+        }
+        for (String name : previous.names) {
+            if (!normalized.contains(name)) {
+                detach(name, previous);
+            }
+        }
+        return previous.value;
+    }
+
+    /**
+     * 移除绑定
+     * @return 被移除的值，没有则为null
+     */
+    public synchronized T unbind(String id) {
+        Binding<T> binding = bindings.remove(id);
+        if (binding == null) {
+            return null;
+        }
+        for (String name : binding.names) {
+            detach(name, binding);
+        }
+        return binding.value;
+    }
+
+    /**
+     * 按绑定标识取当前值
+     */
+    public synchronized T get(String id) {
+        Binding<T> binding = bindings.get(id);
+        return binding != null ? binding.value : null;
+    }
+
+    public synchronized int size() {
+        return nameCount;
+    }
+
+    /**
+     * 所有绑定的当前值
+     */
+    public synchronized List<T> values() {
+        List<T> values = new ArrayList<>(bindings.size());
+        for (Binding<T> binding : bindings.values()) {
+            values.add(binding.value);
+        }
+        return values;
+    }
+
+    /**
+     * 字典树节点数（不含根节点）
+     */
+    synchronized int nodeCount() {
+        return countNodes(root) - 1;
+    }
+
+    private void attach(String name, Binding<T> binding) {
+        boolean wildcard = name.startsWith(WILDCARD_PREFIX);
+        Node<T> node = root;
+        String suffix = wildcard ? name.substring(WILDCARD_PREFIX.length()) : name;
+        int end = suffix.length();
+        while (end > 0) {
+            int dot = suffix.lastIndexOf('.', end - 1);
+            node = node.getOrCreateChild(suffix.substring(dot + 1, end));
+            end = dot;
+        }
+        Binding<T> replaced;
+        if (wildcard) {
+            replaced = node.wildcard;
+            node.wildcard = binding;
+        } else {
+            replaced = node.exact;
+            node.exact = binding;
+        }
+        if (replaced == null) {
+            nameCount++;
+        }
+    }
+
+    private void detach(String name, Binding<T> binding) {
+        boolean wildcard = name.startsWith(WILDCARD_PREFIX);
+        String suffix = wildcard ? name.substring(WILDCARD_PREFIX.length()) : name;
+        List<Node<T>> path = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Node<T> node = root;
+        path.add(node);
+        int end = suffix.length();
+        while (end > 0) {
+            int dot = suffix.lastIndexOf('.', end - 1);
+            String label = suffix.substring(dot + 1, end);
+            node = node.child(label);
+            if (node == null) {
+                return;
+            }
+            path.add(node);
+            labels.add(label);
+            end = dot;
+        }
+        // 域名可能已被其他证书接管，只摘除仍指向本绑定的条目
+        if (wildcard && node.wildcard == binding) {
+            node.wildcard = null;
+        } else if (!wildcard && node.exact == binding) {
+            node.exact = null;
+        } else {
+            return;
+        }
+        nameCount--;
+        prune(path, labels);
+    }
+
+    /**
+     * 自下而上移除既无绑定也无子节点的节点，证书下线后字典树随之收缩
+     * 正在查找的读线程可能仍持有被移除的节点，只会得到未命中，不影响一致性
+     */
+    private void prune(List<Node<T>> path, List<String> labels) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            if (!path.get(i).isEmpty()) {
+                return;
+            }
+            Node<T> parent = path.get(i - 1);
+            parent.children.remove(labels.get(i - 1));
+            if (parent.children.isEmpty()) {
+                parent.children = null;
+            }
+        }
+    }
+
+    private int countNodes(Node<T> node) {
+        int count = 1;
+        Map<String, Node<T>> map = node.children;
+        if (map != null) {
+            for (Node<T> child : map.values()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static String normalize(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ssltest.config;
+
+import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.net.NioChannel;
+
+/**
+ * 使用 {@link SniNioEndpoint} 的HTTP/1.1协议处理器，通过 new Connector(类名) 创建
+ */
+public class SniHttp11NioProtocol extends AbstractHttp11JsseProtocol<NioChannel> {
+
+    private static final Log log = LogFactory.getLog(SniHttp11NioProtocol.class);
+
+    public SniHttp11NioProtocol() {
+        super(new SniNioEndpoint());
+    }
+
+    public SniNioEndpoint getSniEndpoint() {
+        return (SniNioEndpoint) getEndpoint();
+    }
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+
+    @Override
+    protected String getNamePrefix() {
+        return isSSLEnabled() ? "https-sni-nio" : "http-sni-nio";
+    }
+}
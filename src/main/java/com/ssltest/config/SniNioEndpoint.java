@@ -0,0 +1,221 @@
+package com.ssltest.config;
+
+import org.apache.tomcat.util.net.NioEndpoint;
+import org.apache.tomcat.util.net.SSLContext;
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.openssl.OpenSSLContext;
+import org.apache.tomcat.util.net.openssl.OpenSSLImplementation;
+import org.apache.tomcat.util.net.openssl.OpenSSLSessionContext;
+import org.apache.tomcat.util.net.openssl.ciphers.Cipher;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import java.security.KeyManagementException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 使用 {@link SniHostIndex} 解析SNI主机名的NIO端点
+ * 每张证书对应一个SSLHostConfig和一个SSLContext，由其所有域名（含通配符、多SAN）共享
+ * JSSE下SSLContext的密钥由 {@link RotatingKeyManager} 提供，证书续期不重建SSLContext，会话缓存和Session Ticket得以保留；
+ * OpenSSL下SSLContext创建后不能更换证书，续期时重建，会话通过共享的Ticket密钥恢复
+ * 未命中时回退到Tomcat自身的主机配置（_default_）
+ */
+public class SniNioEndpoint extends NioEndpoint {
+
+    private final SniHostIndex<SSLHostConfig> hostIndex = new SniHostIndex<>();
+
+    private final HandshakeStatistics handshakeStatistics = new HandshakeStatistics();
+
+    private volatile SSLHostConfig defaultHostConfig;
+
+    private volatile byte[] ticketKeys;
+
+    // 已释放的OpenSSL上下文累计的会话恢复次数
+    private final LongAdder retiredResumptions = new LongAdder();
+
+    @Override
+    protected SSLEngine createSSLEngine(String sniHostName, List<Cipher> clientRequestedCiphers,
+            List<String> clientRequestedApplicationProtocols) {
+        // 每个新TLS连接调用一次
+        SSLEngine engine = super.createSSLEngine(sniHostName, clientRequestedCiphers, clientRequestedApplicationProtocols);
+        handshakeStatistics.recordHandshake();
+        return new HandshakeTrackingEngine(engine, handshakeStatistics);
+    }
+
+    @Override
+    protected SSLHostConfig getSSLHostConfig(String sniHostName) {
+        SSLHostConfig sslHostConfig = hostIndex.lookup(sniHostName);
+        if (sslHostConfig != null) {
+            return sslHostConfig;
+        }
+        SSLHostConfig fallback = defaultHostConfig;
+        return fallback != null ? fallback : super.getSSLHostConfig(sniHostName);
+    }
+
+    /**
+     * 创建SSLContext并绑定到证书的所有域名，已绑定的旧配置在切换后释放
+     * @param id 证书标识，续期时保持不变
+     */
+    public void bindCertificate(String id, Set<String> hostNames, SSLHostConfig sslHostConfig, RotatingKeyManager keyManager) {
+        createSSLContext(sslHostConfig, keyManager);
+        SSLHostConfig previous = hostIndex.bind(id, hostNames, sslHostConfig);
+        if (previous != null && previous != sslHostConfig) {
+            retire(previous);
+        }
+    }
+
+    /**
+     * 证书续期后域名集合发生变化时，沿用已有的SSLHostConfig重新绑定
+     * @return 证书尚未绑定时返回false
+     */
+    public boolean rebindHostNames(String id, Set<String> hostNames) {
+        SSLHostConfig current = hostIndex.get(id);
+        if (current == null) {
+            return false;
+        }
+        hostIndex.bind(id, hostNames, current);
+        return true;
+    }
+
+    public void unbindCertificate(String id) {
+        SSLHostConfig previous = hostIndex.unbind(id);
+        if (previous != null) {
+            retire(previous);
+        }
+    }
+
+    /**
+     * 设置不带SNI或未命中索引的客户端使用的证书
+     */
+    public synchronized void bindDefault(SSLHostConfig sslHostConfig, RotatingKeyManager keyManager) {
+        createSSLContext(sslHostConfig, keyManager);
+        SSLHostConfig previous = defaultHostConfig;
+        defaultHostConfig = sslHostConfig;
+        if (previous != null) {
+            retire(previous);
+        }
+    }
+
+    /**
+     * 设置集群共享的Session Ticket密钥并应用到所有OpenSSL上下文，之后创建的上下文同样使用
+     * JSSE的Ticket密钥只能由JVM内部生成，不受此设置影响
+     * @param keys 多个48字节密钥拼接，第一个用于加密
+     */
+    public synchronized void setTicketKeys(byte[] keys) {
+        ticketKeys = keys;
+        for (SSLHostConfig sslHostConfig : hostConfigs()) {
+            applyTicketKeys(sslHostConfig, keys);
+        }
+    }
+
+    public boolean isOpenSsl() {
+        return OpenSSLImplementation.class.getName().equals(getSslImplementationName());
+    }
+
+    /**
+     * 会话恢复次数
+     * JSSE下为完成握手时复用了已有会话的连接数；OpenSSL会话的创建时间只精确到秒，改由各上下文的会话统计累加
+     */
+    public long getResumedHandshakes() {
+        if (!isOpenSsl()) {
+            return handshakeStatistics.getResumedHandshakes();
+        }
+        long resumed = retiredResumptions.sum();
+        for (SSLHostConfig sslHostConfig : hostConfigs()) {
+            resumed += openSslResumptions(sslHostConfig);
+        }
+        return resumed;
+    }
+
+    public int getIndexedHostNameCount() {
+        return hostIndex.size();
+    }
+
+    public HandshakeStatistics getHandshakeStatistics() {
+        return handshakeStatistics;
+    }
+
+    /**
+     * Tomcat只释放通过addSslHostConfig注册的主机配置，索引和默认配置的SSLContext（OpenSSL下持有本地内存）在此释放
+     */
+    @Override
+    protected void destroySsl() throws Exception {
+        super.destroySsl();
+        if (isSSLEnabled()) {
+            for (SSLHostConfig sslHostConfig : hostConfigs()) {
+                releaseSSLContext(sslHostConfig);
+            }
+        }
+    }
+
+    @Override
+    public void unbind() throws Exception {
+        super.unbind();
+        // 与注册的主机配置一样清除已释放的上下文
+        for (SSLHostConfig sslHostConfig : hostConfigs()) {
+            for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates(true)) {
+                certificate.setSslContext(null);
+            }
+        }
+    }
+
+    /**
+     * 由Tomcat按主机配置创建SSLContext（协议、加密套件、会话缓存），再换成可轮换的密钥管理器
+     * JSSE重新初始化不会替换SSLContext内部的会话缓存；OpenSSL上下文创建时已加载证书且只能初始化一次，改为设置Ticket密钥
+     */
+    private void createSSLContext(SSLHostConfig sslHostConfig, RotatingKeyManager keyManager) {
+        createSSLContext(sslHostConfig);
+        try {
+            for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates()) {
+                SSLContext sslContext = certificate.getSslContext();
+                if (sslContext != null && !(sslContext instanceof OpenSSLContext)) {
+                    sslContext.init(new KeyManager[] {keyManager}, null, null);
+                }
+            }
+        } catch (KeyManagementException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        byte[] keys = ticketKeys;
+        if (keys != null) {
+            applyTicketKeys(sslHostConfig, keys);
+        }
+    }
+
+    private void retire(SSLHostConfig sslHostConfig) {
+        retiredResumptions.add(openSslResumptions(sslHostConfig));
+        releaseSSLContext(sslHostConfig);
+    }
+
+    private List<SSLHostConfig> hostConfigs() {
+        List<SSLHostConfig> hostConfigs = new ArrayList<>(hostIndex.values());
+        SSLHostConfig fallback = defaultHostConfig;
+        if (fallback != null) {
+            hostConfigs.add(fallback);
+        }
+        return hostConfigs;
+    }
+
+    private static void applyTicketKeys(SSLHostConfig sslHostConfig, byte[] keys) {
+        for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates()) {
+            SSLContext sslContext = certificate.getSslContext();
+            if (sslContext instanceof OpenSSLContext) {
+                ((OpenSSLSessionContext) sslContext.getServerSessionContext()).setTicketKeys(keys);
+            }
+        }
+    }
+
+    private static long openSslResumptions(SSLHostConfig sslHostConfig) {
+        long resumed = 0;
+        for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates()) {
+            SSLContext sslContext = certificate.getSslContext();
+            if (sslContext instanceof OpenSSLContext) {
+                resumed += ((OpenSSLSessionContext) sslContext.getServerSessionContext()).stats().hits();
+            }
+        }
+        return resumed;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ssltest.config;
+
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 启动时把TLS会话相关配置写入JVM系统属性
+ * JSSE在首次加载时读取这些属性，之后修改不再生效，因此在环境准备完成、任何SSLContext创建之前设置；
+ * 启动参数中已通过 -D 指定的属性保持不变
+ */
+public class TlsSystemProperties implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final Map<String, String> PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        PROPERTIES.put("server.ssl.session-tickets", "jdk.tls.server.enableSessionTicketExtension");
+        // JSSE自行生成并按此周期（秒）轮换Ticket密钥，密钥只在本进程内有效
+        PROPERTIES.put("server.ssl.stateless-key-timeout", "jdk.tls.server.statelessKeyTimeout");
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        ConfigurableEnvironment environment = event.getEnvironment();
+        for (Map.Entry<String, String> entry : PROPERTIES.entrySet()) {
+            String value = environment.getProperty(entry.getKey());
+            if (value != null && System.getProperty(entry.getValue()) == null) {
+                System.setProperty(entry.getValue(), value);
+            }
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.ssltest.controller;
 
+import com.ssltest.model.CertificatePage;
 import com.ssltest.model.CertificateResult;
+import com.ssltest.model.SessionStatistics;
+import com.ssltest.service.CertificateInventory;
 import com.ssltest.service.CertificateProvider;
 import com.ssltest.service.SSLCertificateManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
 
 @Slf4j
 @RestController
@@ -18,6 +25,14 @@ public class SSLTestController {
     @Autowired
     @Qualifier("retryableAcmeCertificateProvider")
     private CertificateProvider certificateProvider;
+    
+    @Autowired
+    private CertificateInventory certificateInventory;
+    
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // 超出日期范围时计算截止日期会抛出异常
+    private static final int MAX_EXPIRES_WITHIN_DAYS = 36500;
 
     @GetMapping("/ssl-test")
     public String testSSL() {
@@ -31,7 +46,7 @@ public class SSLTestController {
             CertificateResult result = certificateProvider.applyCertificate(domain);
             
             // 更新SSL配置
-            sslManager.updateCertificate(result.getCertificatePem(), result.getPrivateKeyPem());
+            sslManager.updateCertificate(result.getDomain(), result.getCertificatePem(), result.getPrivateKeyPem());
             
             return String.format("证书申请成功，域名: %s, 过期时间: %s", 
                     result.getDomain(), 
@@ -41,4 +56,32 @@ public class SSLTestController {
             return "证书申请失败: " + e.getMessage();
         }
     }
-} 
\ No newline at end of file
+
+    @GetMapping("/api/ssl/session-stats")
+    public SessionStatistics sessionStatistics() {
+        return sslManager.getSessionStatistics();
+    }
+
+    @GetMapping("/api/ssl/certificates")
+    public ResponseEntity<CertificatePage> listCertificates(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer expiresWithinDays,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            WebRequest request) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (expiresWithinDays != null && Math.abs((long) expiresWithinDays) > MAX_EXPIRES_WITHIN_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        // 剩余天数按自然日计算，ETag包含日期，跨天后自动失效
+        String etag = "\"" + certificateInventory.getVersion() + "-" + LocalDate.now().toEpochDay() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(certificateInventory.query(status, expiresWithinDays, page, size));
+    }
+}
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @Entity
 @Table(name = "certificates")
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CertificateEntity {
@@ -25,6 +25,10 @@ public class CertificateEntity {
     @Column(columnDefinition = "TEXT")
     private String certificatePem;
     
+    // 中间证书指纹（逗号分隔，按链顺序），PEM保存在intermediate_certificates表
+    @Column(length = 1024)
+    private String chainFingerprints;
+    
     @Column(columnDefinition = "TEXT")
     private String privateKeyPem;
     
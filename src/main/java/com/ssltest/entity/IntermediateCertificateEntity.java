@@ -0,0 +1,34 @@
+package com.ssltest.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Data
+@Entity
+@Table(name = "intermediate_certificates")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntermediateCertificateEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256指纹（十六进制），同一中间证书只保存一份
+    @Column(unique = true, nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(length = 512)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String certificatePem;
+
+    // 引用该中间证书的叶子证书数量
+    @Column(nullable = false)
+    private int refCount;
+}
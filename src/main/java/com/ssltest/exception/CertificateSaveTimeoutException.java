@@ -0,0 +1,11 @@
+package com.ssltest.exception;
+
+/**
+ * 等待证书写入提交超时
+ * 写入仍在持久化队列中，之后可能提交，重试会重复下单，因此不参与重试
+ */
+public class CertificateSaveTimeoutException extends RuntimeException {
+    public CertificateSaveTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
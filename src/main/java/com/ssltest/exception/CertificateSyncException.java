@@ -0,0 +1,11 @@
+package com.ssltest.exception;
+
+/**
+ * 证书写入已提交但刷盘失败
+ * 记录已在数据库中，重试会重复下单，因此不参与重试
+ */
+public class CertificateSyncException extends RuntimeException {
+    public CertificateSyncException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,19 @@
+package com.ssltest.model;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificatePage {
+    private List<CertificateSummary> items;
+    private int page;
+    private int size;
+    private long total;
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.ssltest.model;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateSummary {
+    private String domain;
+    private String status;
+    private LocalDateTime issuedAt;
+    private LocalDateTime expiresAt;
+
+    // 按自然日计算，已过期为负数
+    public long getDaysToExpiry() {
+        return ChronoUnit.DAYS.between(LocalDate.now(), expiresAt.toLocalDate());
+    }
+}
\ No newline at end of file
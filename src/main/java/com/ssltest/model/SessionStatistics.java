@@ -0,0 +1,24 @@
+package com.ssltest.model;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionStatistics {
+    private long handshakes;          // 新建TLS连接数
+    private long completedHandshakes; // 握手完成的连接数
+    private long fullHandshakes;      // 完整握手数（需要服务端证书）
+    private long resumedHandshakes;   // 会话恢复数
+    private long failedHandshakes;    // 握手失败数（协议或证书错误）
+    private long incompleteHandshakes; // 进行中或未完成握手即断开的连接数
+    private double resumptionRatio;   // 会话恢复比例（占完成的握手）
+    private int indexedHostNames;     // SNI索引中的域名数
+    private int sessionCacheSize;
+    private int sessionTimeout;       // 秒
+    private boolean sessionTickets;
+}
\ No newline at end of file
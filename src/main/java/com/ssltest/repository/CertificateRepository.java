@@ -1,21 +1,21 @@
 package com.ssltest.repository;
 import com.ssltest.entity.CertificateEntity;
+import com.ssltest.model.CertificateSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CertificateRepository extends JpaRepository<CertificateEntity, Long> {
     CertificateEntity findByDomain(String domain);
     
-    List<CertificateEntity> findByExpiresAtBeforeAndStatus(LocalDateTime date, String status);
+    List<CertificateEntity> findByExpiresAtBeforeAndStatusIn(LocalDateTime date, Collection<String> statuses);
     
-    @Modifying
-    @Query("UPDATE CertificateEntity c SET c.status = :status WHERE c.domain = :domain")
-    int updateStatus(@Param("domain") String domain, @Param("status") String status);
+    // 只取索引需要的列，不加载PEM
+    @Query("SELECT new com.ssltest.model.CertificateSummary(c.domain, c.status, c.issuedAt, c.expiresAt) FROM CertificateEntity c")
+    List<CertificateSummary> findAllSummaries();
 } 
\ No newline at end of file
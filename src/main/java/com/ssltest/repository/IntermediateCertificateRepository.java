@@ -0,0 +1,9 @@
+package com.ssltest.repository;
+import com.ssltest.entity.IntermediateCertificateEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IntermediateCertificateRepository extends JpaRepository<IntermediateCertificateEntity, Long> {
+    IntermediateCertificateEntity findByFingerprint(String fingerprint);
+}
@@ -0,0 +1,126 @@
+package com.ssltest.service;
+
+import com.ssltest.exception.SSLConfigurationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 安装前检查证书链是否完整：叶子证书在前，每张证书由下一张签发，链顶由受信任根证书签发
+ */
+@Slf4j
+@Service
+public class CertificateChainValidator {
+
+    @Value("${acme.security.strict-chain-check:true}")
+    private boolean strictChainCheck;
+
+    private final Map<X500Principal, List<X509Certificate>> trustAnchors = new HashMap<>();
+
+    @PostConstruct
+    public void init() throws Exception {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init((KeyStore) null);
+        for (TrustManager tm : tmf.getTrustManagers()) {
+            if (tm instanceof X509TrustManager) {
+                for (X509Certificate anchor : ((X509TrustManager) tm).getAcceptedIssuers()) {
+                    trustAnchors.computeIfAbsent(anchor.getSubjectX500Principal(), k -> new ArrayList<>()).add(anchor);
+                }
+            }
+        }
+        log.info("已加载受信任根证书: {}", trustAnchors.size());
+    }
+
+    public List<X509Certificate> parseChain(String chainPem) {
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            Collection<? extends Certificate> certs = cf.generateCertificates(
+                    new ByteArrayInputStream(chainPem.getBytes(StandardCharsets.US_ASCII)));
+            List<X509Certificate> chain = new ArrayList<>(certs.size());
+            for (Certificate cert : certs) {
+                chain.add((X509Certificate) cert);
+            }
+            return chain;
+        } catch (GeneralSecurityException e) {
+            throw new SSLConfigurationException("无法解析证书链: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 校验证书链完整性
+     * @param chainPem PEM格式的证书链，叶子证书在前
+     * @return 解析后的证书链
+     */
+    public List<X509Certificate> validate(String chainPem) {
+        List<X509Certificate> chain = parseChain(chainPem);
+        if (chain.isEmpty()) {
+            throw new SSLConfigurationException("证书链为空");
+        }
+
+        for (int i = 0; i < chain.size() - 1; i++) {
+            X509Certificate cert = chain.get(i);
+            X509Certificate issuer = chain.get(i + 1);
+            if (!cert.getIssuerX500Principal().equals(issuer.getSubjectX500Principal()) || !isSignedBy(cert, issuer)) {
+                throw new SSLConfigurationException(String.format("证书链顺序错误: %s 不是由 %s 签发",
+                        cert.getSubjectX500Principal().getName(), issuer.getSubjectX500Principal().getName()));
+            }
+        }
+
+        X509Certificate top = chain.get(chain.size() - 1);
+        if (!isSelfIssued(top) && !isIssuedByTrustAnchor(top)) {
+            String message = String.format("证书链不完整，缺少 %s 的中间证书",
+                    top.getIssuerX500Principal().getName());
+            if (strictChainCheck) {
+                throw new SSLConfigurationException(message);
+            }
+            log.warn(message);
+        }
+
+        log.debug("证书链校验通过，长度: {}", chain.size());
+        return chain;
+    }
+
+    private boolean isSelfIssued(X509Certificate cert) {
+        return cert.getIssuerX500Principal().equals(cert.getSubjectX500Principal());
+    }
+
+    private boolean isIssuedByTrustAnchor(X509Certificate cert) {
+        List<X509Certificate> candidates = trustAnchors.get(cert.getIssuerX500Principal());
+        if (candidates == null) {
+            return false;
+        }
+        for (X509Certificate anchor : candidates) {
+            if (isSignedBy(cert, anchor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSignedBy(X509Certificate cert, X509Certificate issuer) {
+        try {
+            cert.verify(issuer.getPublicKey());
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.model.CertificatePage;
+import com.ssltest.model.CertificateSummary;
+import com.ssltest.repository.CertificateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 证书清单的内存索引，按过期时间排序
+ * 启动时从数据库加载一次（不含PEM），之后每次写库同步更新，查询不访问数据库
+ */
+@Slf4j
+@Service
+public class CertificateInventory {
+
+    private static final class ExpiryKey implements Comparable<ExpiryKey> {
+        private final LocalDateTime expiresAt;
+        private final String domain;
+
+        private ExpiryKey(LocalDateTime expiresAt, String domain) {
+            this.expiresAt = expiresAt;
+            this.domain = domain;
+        }
+
+        @Override
+        public int compareTo(ExpiryKey other) {
+            int result = expiresAt.compareTo(other.expiresAt);
+            return result != 0 ? result : domain.compareTo(other.domain);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ExpiryKey && compareTo((ExpiryKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expiresAt.hashCode() + domain.hashCode();
+        }
+    }
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    private final ConcurrentSkipListMap<ExpiryKey, CertificateSummary> expiryIndex = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<String, ExpiryKey> domainIndex = new ConcurrentHashMap<>();
+
+    // 每次写入递增，用作ETag；以启动时间为初值，重启后不会与客户端缓存的旧ETag重合
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    @PostConstruct
+    public void init() {
+        for (CertificateSummary summary : certificateRepository.findAllSummaries()) {
+            put(summary);
+        }
+        log.info("证书索引加载完成: {}", domainIndex.size());
+    }
+
+    public void onSaved(CertificateEntity entity) {
+        put(CertificateSummary.builder()
+                .domain(entity.getDomain())
+                .status(entity.getStatus())
+                .issuedAt(entity.getIssuedAt())
+                .expiresAt(entity.getExpiresAt())
+                .build());
+    }
+
+    public synchronized void onStatusChanged(String domain, String status) {
+        ExpiryKey key = domainIndex.get(domain);
+        if (key == null) {
+            return;
+        }
+        CertificateSummary current = expiryIndex.get(key);
+        expiryIndex.put(key, CertificateSummary.builder()
+                .domain(current.getDomain())
+                .status(status)
+                .issuedAt(current.getIssuedAt())
+                .expiresAt(current.getExpiresAt())
+                .build());
+        version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 按过期时间升序分页查询
+     * @param status 状态，为空时不过滤
+     * @param expiresWithinDays 剩余天数不超过该值（含已过期），为空时不过滤
+     */
+    public CertificatePage query(String status, Integer expiresWithinDays, int page, int size) {
+        Collection<CertificateSummary> candidates = expiresWithinDays == null
+                ? expiryIndex.values()
+                : expiryIndex.headMap(new ExpiryKey(
+                        LocalDate.now().plusDays(expiresWithinDays + 1L).atStartOfDay(), "")).values();
+
+        long offset = (long) page * size;
+        long total = 0;
+        List<CertificateSummary> items = new ArrayList<>(size);
+        for (CertificateSummary summary : candidates) {
+            if (status != null && !status.equalsIgnoreCase(summary.getStatus())) {
+                continue;
+            }
+            if (total >= offset && items.size() < size) {
+                items.add(summary);
+            }
+            total++;
+        }
+        return CertificatePage.builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .total(total)
+                .build();
+    }
+
+    private synchronized void put(CertificateSummary summary) {
+        ExpiryKey key = new ExpiryKey(summary.getExpiresAt(), summary.getDomain());
+        // 先插入新位置再移除旧位置，并发读取不会漏掉该证书
+        expiryIndex.put(key, summary);
+        ExpiryKey previous = domainIndex.put(summary.getDomain(), key);
+        if (previous != null && !previous.equals(key)) {
+            expiryIndex.remove(previous);
+        }
+        version.incrementAndGet();
+    }
+}
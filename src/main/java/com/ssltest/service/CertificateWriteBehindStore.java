@@ -0,0 +1,381 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.exception.CertificateSyncException;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 证书写入的异步批量持久化
+ * 写请求进入有界队列，后台线程按批合并：同一域名只保留最后一次写入，状态变更并入同批的证书写入，
+ * 每批一个事务，JDBC批处理写入。不为凑批等待，上一批提交期间到达的写入自然累积成下一批；
+ * 返回的Future在事务提交（H2下并同步刷盘）后完成，调用方等待Future即可保证证书落盘后再安装；
+ * 已提交但刷盘失败时以 {@link CertificateSyncException} 结束，调用方据此区分未写入和已写入，
+ * 批量续期时先提交全部写入再统一等待，否则每批只有一条记录
+ * 中间证书的引用计数在同一事务内按新旧指纹的差值原子加减，与证书记录始终一致
+ */
+@Slf4j
+@Service
+public class CertificateWriteBehindStore {
+
+    private static final String UPSERT_SQL = "MERGE INTO certificates "
+            + "(domain, certificate_pem, chain_fingerprints, private_key_pem, issued_at, expires_at, status, acme_account_url) "
+            + "KEY (domain) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE certificates SET status = ? WHERE domain = ?";
+
+    private static final String LOCK_CHAIN_SQL = "SELECT chain_fingerprints FROM certificates WHERE domain = ? FOR UPDATE";
+
+    private static final String COUNT_INTERMEDIATE_SQL = "SELECT COUNT(*) FROM intermediate_certificates WHERE fingerprint = ?";
+
+    private static final String INSERT_INTERMEDIATE_SQL = "INSERT INTO intermediate_certificates "
+            + "(fingerprint, subject, certificate_pem, ref_count) VALUES (?, ?, ?, 0)";
+
+    private static final String ADJUST_REF_COUNT_SQL = "UPDATE intermediate_certificates SET ref_count = ref_count + ? WHERE fingerprint = ?";
+
+    private static final String DELETE_UNUSED_INTERMEDIATE_SQL = "DELETE FROM intermediate_certificates WHERE fingerprint = ? AND ref_count <= 0";
+
+    private static final String SYNC_SQL = "CHECKPOINT SYNC";
+
+    private static final class PendingWrite {
+        private final String domain;
+        private final CertificateEntity entity;
+        private final List<Intermediate> intermediates;
+        private final String status;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(String domain, CertificateEntity entity, List<Intermediate> intermediates, String status) {
+            this.domain = domain;
+            this.entity = entity;
+            this.intermediates = intermediates;
+            this.status = status;
+        }
+    }
+
+    @Value("${acme.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${acme.persistence.batch-size:500}")
+    private int batchSize;
+
+    // 队列空闲时检查停止标志的间隔
+    @Value("${acme.persistence.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${acme.persistence.enqueue-timeout-seconds:30}")
+    private long enqueueTimeoutSeconds;
+
+    // 停止时等待队列刷完的时间，超时后剩余写入以失败结束
+    @Value("${acme.persistence.shutdown-timeout-seconds:60}")
+    private long shutdownTimeoutSeconds;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CertificateInventory certificateInventory;
+
+    @Autowired
+    private IntermediateCertificateCache intermediateCache;
+
+    private BlockingQueue<PendingWrite> queue;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::run, "certificate-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("证书持久化队列: 容量{}，批大小{}", queueCapacity, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // 停止接收后把队列中剩余的写入刷完
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds));
+        if (flusher.isAlive()) {
+            log.warn("证书持久化队列未在{}秒内刷完", shutdownTimeoutSeconds);
+        }
+        failRemaining();
+    }
+
+    /**
+     * 保存证书（按域名插入或覆盖），同时转移中间证书引用：新链计数加一，被覆盖的旧链计数减一
+     * @param intermediates 与 entity.chainFingerprints 对应的中间证书
+     * @return 数据提交后完成
+     */
+    public CompletableFuture<Void> save(CertificateEntity entity, List<Intermediate> intermediates) {
+        return enqueue(new PendingWrite(entity.getDomain(), entity, intermediates, null));
+    }
+
+    /**
+     * 更新证书状态
+     * @return 数据提交后完成
+     */
+    public CompletableFuture<Void> updateStatus(String domain, String status) {
+        return enqueue(new PendingWrite(domain, null, Collections.emptyList(), status));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        if (!running) {
+            throw new IllegalStateException("证书持久化队列已关闭");
+        }
+        try {
+            // 队列满时阻塞调用方形成背压，超时视为失败
+            if (!queue.offer(write, enqueueTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new RuntimeException("证书持久化队列已满: " + write.domain);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待证书持久化队列被中断", e);
+        }
+        // 入队期间队列已关闭：能撤回说明没有线程会处理它，否则由后台线程或stop()负责完成
+        if (!running && queue.remove(write)) {
+            throw new IllegalStateException("证书持久化队列已关闭");
+        }
+        return write.future;
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                try {
+                    flush(batch);
+                } catch (Exception e) {
+                    log.error("证书批量持久化失败: {}", e.getMessage(), e);
+                    fail(batch, e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("证书持久化线程被中断");
+        } finally {
+            // 异常退出时不再接收写入，未提交的写入以失败结束，调用方不会一直等待
+            running = false;
+            fail(batch, new IllegalStateException("证书持久化队列已关闭"));
+            failRemaining();
+        }
+    }
+
+    private void failRemaining() {
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("证书持久化队列关闭，{}个写入未提交", remaining.size());
+            fail(remaining, new IllegalStateException("证书持久化队列已关闭"));
+        }
+    }
+
+    private static void fail(List<PendingWrite> writes, Exception cause) {
+        for (PendingWrite write : writes) {
+            write.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 取走队列中已有的写入直到凑满一批，队列为空时立即提交，不为凑批等待
+     * 提交期间到达的写入在队列中累积，下一批一并提交
+     */
+    private void collect(List<PendingWrite> batch) {
+        queue.drainTo(batch, batchSize - batch.size());
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        // 按写入顺序合并：后来的证书覆盖之前的证书和状态，后来的状态并入同批的证书
+        Map<String, CertificateEntity> upserts = new LinkedHashMap<>();
+        Map<String, String> statuses = new LinkedHashMap<>();
+        Map<String, Intermediate> intermediates = new HashMap<>();
+        for (PendingWrite write : batch) {
+            if (write.entity != null) {
+                upserts.put(write.domain, write.entity);
+                for (Intermediate intermediate : write.intermediates) {
+                    intermediates.put(intermediate.getFingerprint(), intermediate);
+                }
+                statuses.remove(write.domain);
+            } else if (upserts.containsKey(write.domain)) {
+                // 复制后修改，不改动调用方持有的实体
+                upserts.put(write.domain, upserts.get(write.domain).toBuilder().status(write.status).build());
+            } else {
+                statuses.put(write.domain, write.status);
+            }
+        }
+
+        List<Object[]> upsertArgs = new ArrayList<>(upserts.size());
+        for (CertificateEntity entity : upserts.values()) {
+            upsertArgs.add(new Object[] {
+                    entity.getDomain(),
+                    entity.getCertificatePem(),
+                    entity.getChainFingerprints(),
+                    entity.getPrivateKeyPem(),
+                    entity.getIssuedAt(),
+                    entity.getExpiresAt(),
+                    entity.getStatus(),
+                    entity.getAcmeAccountUrl()
+            });
+        }
+        List<Object[]> statusArgs = new ArrayList<>(statuses.size());
+        for (Map.Entry<String, String> entry : statuses.entrySet()) {
+            statusArgs.add(new Object[] {entry.getValue(), entry.getKey()});
+        }
+
+        List<String> removedIntermediates = transactionTemplate.execute(tx -> {
+            Map<String, Integer> refDeltas = lockAndDiffChains(upserts.values());
+            insertMissingIntermediates(refDeltas, intermediates);
+            if (!upsertArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upsertArgs);
+            }
+            if (!statusArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, statusArgs);
+            }
+            return adjustRefCounts(refDeltas);
+        });
+
+        // 事务已提交，之后的异常不能让调用方把已提交的写入当作失败
+        CertificateSyncException syncFailure = null;
+        // H2默认延迟写盘，提交后强制刷盘，每批只付出一次同步开销
+        if (datasourceUrl.startsWith("jdbc:h2:file:")) {
+            try {
+                jdbcTemplate.execute(SYNC_SQL);
+            } catch (RuntimeException e) {
+                log.error("证书批量持久化已提交，刷盘失败: {}", e.getMessage(), e);
+                syncFailure = new CertificateSyncException("证书已提交但刷盘失败", e);
+            }
+        }
+        try {
+            intermediateCache.onCommitted(intermediates.values(), removedIntermediates);
+            for (CertificateEntity entity : upserts.values()) {
+                certificateInventory.onSaved(entity);
+            }
+            for (Map.Entry<String, String> entry : statuses.entrySet()) {
+                certificateInventory.onStatusChanged(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            log.error("证书批量持久化已提交，内存索引同步失败: {}", e.getMessage(), e);
+        }
+        for (PendingWrite write : batch) {
+            if (syncFailure != null) {
+                write.future.completeExceptionally(syncFailure);
+            } else {
+                write.future.complete(null);
+            }
+        }
+        log.debug("证书批量持久化完成: 写入{}，合并后证书{}，状态{}", batch.size(), upserts.size(), statuses.size());
+    }
+
+    /**
+     * 锁定本批要覆盖的证书行，按旧链和新链的指纹差值计算每个中间证书的引用变化
+     */
+    private Map<String, Integer> lockAndDiffChains(Collection<CertificateEntity> entities) {
+        Map<String, Integer> refDeltas = new HashMap<>();
+        for (CertificateEntity entity : entities) {
+            List<String> current = jdbcTemplate.queryForList(LOCK_CHAIN_SQL, String.class, entity.getDomain());
+            if (!current.isEmpty()) {
+                for (String fingerprint : IntermediateCertificateCache.splitFingerprints(current.get(0))) {
+                    refDeltas.merge(fingerprint, -1, Integer::sum);
+                }
+            }
+            for (String fingerprint : IntermediateCertificateCache.splitFingerprints(entity.getChainFingerprints())) {
+                refDeltas.merge(fingerprint, 1, Integer::sum);
+            }
+        }
+        refDeltas.values().removeIf(delta -> delta == 0);
+        return refDeltas;
+    }
+
+    /**
+     * 首次出现的中间证书以计数0插入，随后与已有记录一起按差值调整
+     */
+    private void insertMissingIntermediates(Map<String, Integer> refDeltas, Map<String, Intermediate> intermediates) {
+        List<Object[]> insertArgs = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : refDeltas.entrySet()) {
+            if (entry.getValue() < 0) {
+                continue;
+            }
+            Intermediate intermediate = intermediates.get(entry.getKey());
+            if (intermediate == null) {
+                throw new IllegalStateException("中间证书缺失: " + entry.getKey());
+            }
+            Integer count = jdbcTemplate.queryForObject(COUNT_INTERMEDIATE_SQL, Integer.class, entry.getKey());
+            if (count == null || count == 0) {
+                insertArgs.add(new Object[] {
+                        intermediate.getFingerprint(),
+                        intermediate.getSubject(),
+                        intermediate.getCertificatePem()
+                });
+            }
+        }
+        if (!insertArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_INTERMEDIATE_SQL, insertArgs);
+        }
+    }
+
+    /**
+     * 原子加减引用计数，并删除计数归零的中间证书
+     * @return 被删除的指纹
+     */
+    private List<String> adjustRefCounts(Map<String, Integer> refDeltas) {
+        if (refDeltas.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object[]> adjustArgs = new ArrayList<>(refDeltas.size());
+        List<Object[]> deleteArgs = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : refDeltas.entrySet()) {
+            adjustArgs.add(new Object[] {entry.getValue(), entry.getKey()});
+            if (entry.getValue() < 0) {
+                deleteArgs.add(new Object[] {entry.getKey()});
+            }
+        }
+        jdbcTemplate.batchUpdate(ADJUST_REF_COUNT_SQL, adjustArgs);
+        if (deleteArgs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_UNUSED_INTERMEDIATE_SQL, deleteArgs);
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 0) {
+                removed.add((String) deleteArgs.get(i)[0]);
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ssltest.service;
+
+/**
+ * DNS-01验证使用的DNS服务提供方
+ * 通过 acme.dns.provider 选择实现
+ */
+public interface DnsProvider {
+    /**
+     * 添加TXT记录
+     * @param name 记录名，如 _acme-challenge.example.com
+     * @param value 记录值
+     */
+    void addTxtRecord(String name, String value) throws Exception;
+
+    /**
+     * 删除TXT记录
+     * @param name 记录名
+     * @param value 记录值
+     */
+    void removeTxtRecord(String name, String value) throws Exception;
+
+    /**
+     * 等待TXT记录在所有权威DNS上可见，返回后才通知ACME服务器验证
+     * 默认认为写入即生效；记录需要同步到多个权威节点的实现应覆盖此方法
+     * @param name 记录名
+     * @param value 记录值
+     */
+    default void waitForPropagation(String name, String value) throws Exception {
+    }
+}
@@ -0,0 +1,173 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.IntermediateCertificateEntity;
+import com.ssltest.repository.IntermediateCertificateRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 中间证书共享缓存
+ * 同一签发者的叶子证书只保存中间证书的指纹，内存和数据库中各保留一份PEM，
+ * 内存中每个指纹只解析一次，所有证书的KeyStore链引用同一个证书对象
+ * 引用计数只在数据库中维护，由 {@link CertificateWriteBehindStore} 在写入叶子证书的同一事务内调整，计数归零时删除
+ */
+@Slf4j
+@Service
+public class IntermediateCertificateCache {
+
+    private static final String FINGERPRINT_SEPARATOR = ",";
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Intermediate {
+        private final String fingerprint;
+        private final String subject;
+        private final String certificatePem;
+        private final X509Certificate certificate;
+    }
+
+    @Autowired
+    private IntermediateCertificateRepository intermediateRepository;
+
+    private final ConcurrentHashMap<String, Intermediate> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 计算中间证书的指纹和PEM，不访问数据库
+     * @param intermediates 按链顺序排列的中间证书（不含叶子证书）
+     */
+    public List<Intermediate> describe(List<X509Certificate> intermediates) throws Exception {
+        List<Intermediate> result = new ArrayList<>(intermediates.size());
+        for (X509Certificate cert : intermediates) {
+            String fingerprint = fingerprint(cert);
+            Intermediate entry = cache.get(fingerprint);
+            if (entry == null) {
+                entry = new Intermediate(fingerprint, cert.getSubjectX500Principal().getName(), toPem(cert), cert);
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * @return 逗号分隔的指纹列表，保存在叶子证书记录中
+     */
+    public static String joinFingerprints(List<Intermediate> intermediates) {
+        List<String> fingerprints = new ArrayList<>(intermediates.size());
+        for (Intermediate intermediate : intermediates) {
+            fingerprints.add(intermediate.getFingerprint());
+        }
+        return String.join(FINGERPRINT_SEPARATOR, fingerprints);
+    }
+
+    public static String[] splitFingerprints(String chainFingerprints) {
+        if (chainFingerprints == null || chainFingerprints.isEmpty()) {
+            return new String[0];
+        }
+        return chainFingerprints.split(FINGERPRINT_SEPARATOR);
+    }
+
+    /**
+     * 写入事务提交后同步内存：新保存的中间证书加入缓存，计数归零被删除的移出缓存
+     */
+    public void onCommitted(Collection<Intermediate> saved, Collection<String> removedFingerprints) {
+        for (Intermediate intermediate : saved) {
+            if (cache.putIfAbsent(intermediate.getFingerprint(), intermediate) == null) {
+                log.info("缓存新的中间证书: {}", intermediate.getSubject());
+            }
+        }
+        for (String fingerprint : removedFingerprints) {
+            Intermediate removed = cache.remove(fingerprint);
+            log.info("中间证书已无引用，移除: {}", removed != null ? removed.getSubject() : fingerprint);
+        }
+    }
+
+    /**
+     * 按指纹还原中间证书链PEM
+     */
+    public String resolveChainPem(String chainFingerprints) {
+        StringBuilder chainPem = new StringBuilder();
+        for (String fingerprint : splitFingerprints(chainFingerprints)) {
+            Intermediate entry = lookup(fingerprint);
+            if (entry == null) {
+                throw new IllegalStateException("中间证书缺失: " + fingerprint);
+            }
+            chainPem.append(entry.getCertificatePem());
+        }
+        return chainPem.toString();
+    }
+
+    /**
+     * 将证书链中的中间证书替换为缓存中的共享实例，叶子证书保持不变
+     * 数据库中没有的中间证书（如手动上传的证书链）原样使用，不加入缓存：
+     * 缓存条目随数据库引用计数归零移除，未持久化的条目没有计数，加入后将永远不会释放
+     */
+    public List<X509Certificate> share(List<X509Certificate> chain) throws Exception {
+        List<X509Certificate> shared = new ArrayList<>(chain.size());
+        shared.add(chain.get(0));
+        for (X509Certificate cert : chain.subList(1, chain.size())) {
+            Intermediate entry = lookup(fingerprint(cert));
+            shared.add(entry != null ? entry.getCertificate() : cert);
+        }
+        return shared;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private Intermediate lookup(String fingerprint) {
+        Intermediate entry = cache.get(fingerprint);
+        if (entry == null) {
+            IntermediateCertificateEntity stored = intermediateRepository.findByFingerprint(fingerprint);
+            if (stored != null) {
+                entry = new Intermediate(stored.getFingerprint(), stored.getSubject(), stored.getCertificatePem(),
+                        parse(stored.getCertificatePem()));
+                Intermediate existing = cache.putIfAbsent(fingerprint, entry);
+                if (existing != null) {
+                    entry = existing;
+                }
+            }
+        }
+        return entry;
+    }
+
+    private X509Certificate parse(String pem) {
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)));
+        } catch (CertificateException e) {
+            throw new IllegalStateException("中间证书解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    private String fingerprint(X509Certificate cert) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return Hex.toHexString(digest.digest(cert.getEncoded()));
+    }
+
+    private String toPem(X509Certificate cert) throws Exception {
+        StringWriter writer = new StringWriter();
+        try (PemWriter pemWriter = new PemWriter(writer)) {
+            pemWriter.writeObject(new PemObject("CERTIFICATE", cert.getEncoded()));
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.ssltest.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群共享的Session Ticket密钥，保存在存储路径下，所有节点挂载同一路径即使用同一组密钥
+ * 文件按顺序保存上一个、当前、下一个三把密钥（每把48字节），到期时整体后移一位并生成新的下一个密钥：
+ * 当前密钥用于加密，三把都可解密。新密钥在成为当前密钥前已分发到各节点，
+ * 某个节点先完成轮换时，其他节点仍能解密它签发的Ticket
+ */
+@Slf4j
+@Service
+public class SessionTicketKeyStore {
+
+    // OpenSSL的Ticket密钥：名称16字节 + HMAC密钥16字节 + AES密钥16字节
+    public static final int KEY_LENGTH = 48;
+    private static final int KEY_COUNT = 3;
+    private static final String KEY_FILE = "keys/session-ticket.keys";
+    private static final String LOCK_FILE = "keys/session-ticket.lock";
+
+    @Value("${acme.storage.path:${user.dir}/data/ssl}")
+    private String storagePath;
+
+    @Value("${server.ssl.ticket-key-rotation-hours:12}")
+    private long rotationHours;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // 按当前、下一个、上一个的顺序拼接，第一把用于加密
+    private volatile byte[] ticketKeys;
+
+    /**
+     * 读取密钥文件，到期时轮换并写回；各节点通过文件锁串行，只有一个节点执行轮换
+     * @return 本节点使用的密钥发生变化时返回true
+     */
+    public synchronized boolean refresh() throws IOException {
+        Path keyFile = Paths.get(storagePath, KEY_FILE);
+        Files.createDirectories(keyFile.getParent());
+
+        List<byte[]> keys;
+        try (FileChannel lockChannel = FileChannel.open(Paths.get(storagePath, LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            keys = read(keyFile);
+            if (keys.size() != KEY_COUNT) {
+                keys = new ArrayList<>();
+                for (int i = 0; i < KEY_COUNT; i++) {
+                    keys.add(generateKey());
+                }
+                write(keyFile, keys);
+                log.info("已生成Session Ticket密钥: {}", keyFile);
+            } else if (isExpired(keyFile)) {
+                keys.remove(0);
+                keys.add(generateKey());
+                write(keyFile, keys);
+                log.info("Session Ticket密钥已轮换");
+            }
+        }
+
+        byte[] ordered = new byte[KEY_LENGTH * KEY_COUNT];
+        System.arraycopy(keys.get(1), 0, ordered, 0, KEY_LENGTH);
+        System.arraycopy(keys.get(2), 0, ordered, KEY_LENGTH, KEY_LENGTH);
+        System.arraycopy(keys.get(0), 0, ordered, KEY_LENGTH * 2, KEY_LENGTH);
+        if (Arrays.equals(ordered, ticketKeys)) {
+            return false;
+        }
+        ticketKeys = ordered;
+        return true;
+    }
+
+    /**
+     * 当前使用的密钥，尚未加载时为null
+     */
+    public byte[] getTicketKeys() {
+        byte[] keys = ticketKeys;
+        return keys != null ? keys.clone() : null;
+    }
+
+    private boolean isExpired(Path keyFile) throws IOException {
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(keyFile).toMillis();
+        return age >= TimeUnit.HOURS.toMillis(rotationHours);
+    }
+
+    /**
+     * 文件不存在或内容无效时返回空列表
+     */
+    private List<byte[]> read(Path keyFile) throws IOException {
+        List<byte[]> keys = new ArrayList<>();
+        if (!Files.exists(keyFile)) {
+            return keys;
+        }
+        for (String line : Files.readAllLines(keyFile, StandardCharsets.US_ASCII)) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            byte[] key;
+            try {
+                key = Base64.getDecoder().decode(line.trim());
+            } catch (IllegalArgumentException e) {
+                key = null;
+            }
+            if (key == null || key.length != KEY_LENGTH) {
+                log.warn("Session Ticket密钥文件无效，将重新生成: {}", keyFile);
+                keys.clear();
+                return keys;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * 先写临时文件再原子替换，其他节点不会读到写了一半的文件
+     */
+    private void write(Path keyFile, List<byte[]> keys) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (byte[] key : keys) {
+            lines.add(Base64.getEncoder().encodeToString(key));
+        }
+        Path tempFile = Files.createTempFile(keyFile.getParent(), "session-ticket", ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(tempFile, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // 非POSIX文件系统，沿用目录权限
+            }
+            Files.write(tempFile, lines, StandardCharsets.US_ASCII);
+            Files.move(tempFile, keyFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private byte[] generateKey() {
+        byte[] key = new byte[KEY_LENGTH];
+        random.nextBytes(key);
+        return key;
+    }
+}
@@ -1,12 +1,20 @@
 package com.ssltest.service.impl;
 
 import com.ssltest.entity.CertificateEntity;
+import com.ssltest.exception.CertificateSaveTimeoutException;
+import com.ssltest.exception.CertificateSyncException;
 import com.ssltest.model.CertificateResult;
 import com.ssltest.repository.CertificateRepository;
 import com.ssltest.service.CertificateProvider;
+import com.ssltest.service.CertificateWriteBehindStore;
 import com.ssltest.service.ChallengeService;
+import com.ssltest.service.DnsProvider;
+import com.ssltest.service.IntermediateCertificateCache;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import com.ssltest.service.SSLCertificateManager;
 import lombok.extern.slf4j.Slf4j;
 import org.shredzone.acme4j.*;
+import org.shredzone.acme4j.challenge.Dns01Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.util.CSRBuilder;
 import org.shredzone.acme4j.util.KeyPairUtils;
@@ -21,8 +29,18 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
 import org.bouncycastle.util.io.pem.PemObject;
@@ -65,6 +83,14 @@ public class AcmeCertificateProvider implements CertificateProvider {
     @Value("${acme.challenge.retry-interval:10}")
     private int challengeRetryInterval;
     
+    // 这些区域下的一级子域名统一签发 *.zone 通配符证书，逗号分隔
+    @Value("${acme.challenge.wildcard-zones:}")
+    private String[] wildcardZones;
+    
+    // DNS服务商无法确认记录已生效时，添加TXT记录后额外等待的秒数
+    @Value("${acme.dns.propagation-delay:0}")
+    private int dnsPropagationDelay;
+    
     @Value("${acme.storage.path:${user.dir}/data/ssl}")
     private String storagePath;
     
@@ -75,9 +101,39 @@ public class AcmeCertificateProvider implements CertificateProvider {
     @Autowired
     private ChallengeService challengeService;
     
+    @Autowired
+    private IntermediateCertificateCache intermediateCache;
+    
+    @Autowired(required = false)
+    private DnsProvider dnsProvider;
+    
+    @Autowired
+    private CertificateWriteBehindStore certificateStore;
+    
+    @Autowired
+    private SSLCertificateManager sslCertificateManager;
+    
     private static final String ACCOUNT_KEY_FILE = "keys/account.key";
     private static final String DOMAIN_KEY_FILE = "keys/domain.key";
     private static final String CERT_DIR = "certs";
+    private static final String WILDCARD_PREFIX = "*.";
+    private static final String DNS_CHALLENGE_PREFIX = "_acme-challenge.";
+    private static final long SAVE_TIMEOUT_SECONDS = 60;
+    private static final String STATUS_ACTIVE = "ACTIVE";
+    private static final String STATUS_EXPIRED = "EXPIRED";
+
+    /**
+     * 已签发、等待落盘的证书
+     */
+    private static final class PendingCertificate {
+        private final CertificateEntity entity;
+        private final CompletableFuture<Void> saved;
+
+        private PendingCertificate(CertificateEntity entity, CompletableFuture<Void> saved) {
+            this.entity = entity;
+            this.saved = saved;
+        }
+    }
 
     @PostConstruct
     public void init() {
@@ -94,6 +150,7 @@ public class AcmeCertificateProvider implements CertificateProvider {
         log.info("更新天数: {}", renewalDays);
         log.info("通知天数: {}", notifyDays);
         log.info("验证类型: {}", challengeType);
+        log.info("通配符区域: {}", String.join(",", wildcardZones));
     }
     
     private void createDirectories(File... dirs) {
@@ -110,16 +167,79 @@ public class AcmeCertificateProvider implements CertificateProvider {
     
     @Override
     public CertificateResult applyCertificate(String domain) throws Exception {
+        domain = toCertificateDomain(domain);
         log.info("开始为域名{}申请证书", domain);
         
-        // 检查是否已有有效证书
+        // 检查是否已有有效证书（未记录证书链的旧记录需要重新申请）
         CertificateEntity existingCert = certificateRepository.findByDomain(domain);
-        if (existingCert != null && 
+        if (existingCert != null && existingCert.getChainFingerprints() != null &&
             existingCert.getExpiresAt().isAfter(LocalDateTime.now().plusDays(renewalDays))) {
             log.info("域名{}已有有效证书", domain);
             return convertToResult(existingCert);
         }
         
+        PendingCertificate pending = orderCertificate(domain);
+        awaitSaved(Collections.singletonList(pending.saved));
+        return convertToResult(pending.entity);
+    }
+    
+    @Scheduled(cron = "0 0 0 * * ?") // 每天凌晨执行
+    public void renewCertificates() {
+        log.info("开始检查证书期");
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // 已过期的证书继续尝试续期，成功后恢复为ACTIVE
+            List<CertificateEntity> certificates = certificateRepository
+                    .findByExpiresAtBeforeAndStatusIn(now.plusDays(30), Arrays.asList(STATUS_ACTIVE, STATUS_EXPIRED));
+            
+            // 逐个下单，保存只入队不等待，由持久化队列合并成批提交
+            List<PendingCertificate> renewed = new ArrayList<>();
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (CertificateEntity cert : certificates) {
+                try {
+                    PendingCertificate pending = orderCertificate(cert.getDomain());
+                    renewed.add(pending);
+                    writes.add(pending.saved);
+                } catch (Exception e) {
+                    String message = String.format("域名 %s 的证书续期失败: %s", 
+                            cert.getDomain(), e.getMessage());
+                    log.error(message, e);
+                    // 续期失败且已过期，标记状态，与其他写入合并提交
+                    if (cert.getExpiresAt().isBefore(now) && !STATUS_EXPIRED.equals(cert.getStatus())) {
+                        writes.add(certificateStore.updateStatus(cert.getDomain(), STATUS_EXPIRED));
+                    }
+                }
+            }
+            
+            // 全部落盘后再安装，单个写入失败不影响其他域名
+            try {
+                awaitSaved(writes);
+            } catch (Exception e) {
+                log.error("部分续期写入失败: {}", e.getMessage());
+            }
+            for (PendingCertificate pending : renewed) {
+                String domain = pending.entity.getDomain();
+                if (!isCommitted(pending.saved)) {
+                    log.error("域名 {} 的续期证书未能保存，暂不安装", domain);
+                    continue;
+                }
+                try {
+                    CertificateResult result = convertToResult(pending.entity);
+                    sslCertificateManager.updateCertificate(domain, result.getCertificatePem(), result.getPrivateKeyPem());
+                    log.info("证书续期成功: {}", domain);
+                } catch (Exception e) {
+                    log.error("域名 {} 的续期证书安装失败: {}", domain, e.getMessage(), e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("证书续期检查失败", e);
+        }
+    }
+    
+    /**
+     * 下单签发证书并提交保存，不等待落盘
+     */
+    private PendingCertificate orderCertificate(String domain) {
         try {
             Session session = new Session(acmeServerUrl);
             Account account = getOrCreateAccount(session);
@@ -142,9 +262,7 @@ public class AcmeCertificateProvider implements CertificateProvider {
             Certificate certificate = order.getCertificate();
             
             // 保存证书
-            CertificateEntity certEntity = saveCertificate(domain, certificate, domainKeyPair, account);
-            
-            return convertToResult(certEntity);
+            return saveCertificate(domain, certificate, domainKeyPair, account);
             
         } catch (Exception e) {
             log.error("证书申请失败: {}", e.getMessage(), e);
@@ -152,26 +270,40 @@ public class AcmeCertificateProvider implements CertificateProvider {
         }
     }
     
-    @Scheduled(cron = "0 0 0 * * ?") // 每天凌晨执行
-    public void renewCertificates() {
-        log.info("开始检查证书期");
+    /**
+     * 等待证书写入提交
+     */
+    private void awaitSaved(List<CompletableFuture<Void>> writes) {
         try {
-            LocalDateTime renewalDate = LocalDateTime.now().plusDays(30);
-            List<CertificateEntity> certificates = certificateRepository
-                    .findByExpiresAtBeforeAndStatus(renewalDate, "ACTIVE");
-            
-            for (CertificateEntity cert : certificates) {
-                try {
-                    applyCertificate(cert.getDomain());
-                    log.info("证书续期成功: {}", cert.getDomain());
-                } catch (Exception e) {
-                    String message = String.format("域名 %s 的证书续期失败: %s", 
-                            cert.getDomain(), e.getMessage());
-                    log.error(message, e);
-                }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.error("保存证书超时");
+            throw new CertificateSaveTimeoutException("保存证书超时，写入仍可能提交", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待证书保存被中断", e);
+        } catch (ExecutionException e) {
+            log.error("保存证书信息失败: {}", e.getCause().getMessage());
+            if (e.getCause() instanceof CertificateSyncException) {
+                // 已提交的写入不能当作未保存，原样抛出以免重试重复下单
+                throw (CertificateSyncException) e.getCause();
             }
-        } catch (Exception e) {
-            log.error("证书续期检查失败", e);
+            throw new RuntimeException("保存证书失败", e.getCause());
+        }
+    }
+    
+    /**
+     * 写入已提交（包括提交后刷盘失败）
+     */
+    private static boolean isCommitted(CompletableFuture<Void> saved) {
+        if (!saved.isDone()) {
+            return false;
+        }
+        try {
+            saved.join();
+            return true;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof CertificateSyncException;
         }
     }
     
@@ -189,7 +321,36 @@ public class AcmeCertificateProvider implements CertificateProvider {
         return account;
     }
     
+    /**
+     * 属于通配符区域的一级子域名转换为 *.zone，其余域名原样返回
+     */
+    private String toCertificateDomain(String domain) {
+        String normalized = domain.toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(WILDCARD_PREFIX)) {
+            return normalized;
+        }
+        for (String zone : wildcardZones) {
+            String zoneName = zone.trim().toLowerCase(Locale.ROOT);
+            if (!zoneName.isEmpty() && normalized.endsWith("." + zoneName)
+                    && normalized.indexOf('.') == normalized.length() - zoneName.length() - 1) {
+                String wildcard = WILDCARD_PREFIX + zoneName;
+                log.info("域名{}使用通配符证书{}", domain, wildcard);
+                return wildcard;
+            }
+        }
+        return normalized;
+    }
+    
     private void processAuthorization(Authorization auth) throws Exception {
+        // 通配符域名只能通过DNS-01验证
+        if (auth.isWildcard() || Dns01Challenge.TYPE.equalsIgnoreCase(challengeType)) {
+            processDnsChallenge(auth);
+        } else {
+            processHttpChallenge(auth);
+        }
+    }
+    
+    private void processHttpChallenge(Authorization auth) throws Exception {
         Http01Challenge challenge = auth.findChallenge(Http01Challenge.TYPE);
         if (challenge == null) {
             throw new Exception("找不到HTTP-01验证方式");
@@ -198,22 +359,7 @@ public class AcmeCertificateProvider implements CertificateProvider {
         try {
             challengeService.saveChallenge(challenge.getToken(), challenge.getAuthorization());
             challenge.trigger();
-            
-            int attempts = 0;
-            while (auth.getStatus() != Status.VALID && attempts < 10) {
-                if (auth.getStatus() == Status.INVALID) {
-                    throw new Exception("域名验证失败");
-                }
-                Thread.sleep(3000L);
-                auth.update();
-                attempts++;
-            }
-            
-            if (auth.getStatus() != Status.VALID) {
-                throw new Exception("域名验证超时");
-            }
-            
-            log.info("域名验证成功");
+            waitForValidation(auth);
         } catch (Exception e) {
             log.error("域名验证失败: {}", e.getMessage());
             throw e;
@@ -222,12 +368,60 @@ public class AcmeCertificateProvider implements CertificateProvider {
         }
     }
     
+    private void processDnsChallenge(Authorization auth) throws Exception {
+        Dns01Challenge challenge = auth.findChallenge(Dns01Challenge.TYPE);
+        if (challenge == null) {
+            throw new Exception("找不到DNS-01验证方式");
+        }
+        if (dnsProvider == null) {
+            throw new Exception("DNS-01验证需要配置acme.dns.provider");
+        }
+        
+        // 通配符授权的标识符为去掉 *. 的基础域名
+        String recordName = DNS_CHALLENGE_PREFIX + auth.getIdentifier().getDomain();
+        String digest = challenge.getDigest();
+        try {
+            dnsProvider.addTxtRecord(recordName, digest);
+            // 记录未生效就触发验证会使授权直接失效，需要重新下单
+            dnsProvider.waitForPropagation(recordName, digest);
+            if (dnsPropagationDelay > 0) {
+                TimeUnit.SECONDS.sleep(dnsPropagationDelay);
+            }
+            challenge.trigger();
+            waitForValidation(auth);
+        } catch (Exception e) {
+            log.error("域名验证失败: {}", e.getMessage());
+            throw e;
+        } finally {
+            dnsProvider.removeTxtRecord(recordName, digest);
+        }
+    }
+    
+    private void waitForValidation(Authorization auth) throws Exception {
+        int attempts = 0;
+        while (auth.getStatus() != Status.VALID && attempts < 10) {
+            if (auth.getStatus() == Status.INVALID) {
+                throw new Exception("域名验证失败");
+            }
+            Thread.sleep(3000L);
+            auth.update();
+            attempts++;
+        }
+        
+        if (auth.getStatus() != Status.VALID) {
+            throw new Exception("域名验证超时");
+        }
+        
+        log.info("域名验证成功: {}", auth.getIdentifier().getDomain());
+    }
+    
     private CertificateResult convertToResult(CertificateEntity entity) {
+        // 时间字段均按系统时区存储（见saveCertificate），与证书索引按天的计算一致
         return CertificateResult.builder()
                 .domain(entity.getDomain())
-                .certificatePem(entity.getCertificatePem())
+                .certificatePem(entity.getCertificatePem() + intermediateCache.resolveChainPem(entity.getChainFingerprints()))
                 .privateKeyPem(entity.getPrivateKeyPem())
-                .expirationTime(entity.getExpiresAt().toInstant(java.time.ZoneOffset.UTC).toEpochMilli())
+                .expirationTime(entity.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
                 .build();
     }
     
@@ -263,9 +457,11 @@ public class AcmeCertificateProvider implements CertificateProvider {
         return keyPair;
     }
     
-    private CertificateEntity saveCertificate(String domain, Certificate certificate, KeyPair domainKeyPair, Account account) throws Exception {
-        // 获取证书并转换为PEM格式
-        X509Certificate x509Cert = certificate.getCertificate();
+    private PendingCertificate saveCertificate(String domain, Certificate certificate, KeyPair domainKeyPair,
+                                               Account account) throws Exception {
+        // 获取证书链，叶子证书单独保存，中间证书进入共享缓存
+        List<X509Certificate> chain = certificate.getCertificateChain();
+        X509Certificate x509Cert = chain.get(0);
         StringWriter writer = new StringWriter();
         try (PemWriter pemWriter = new PemWriter(writer)) {
             pemWriter.writeObject(new PemObject("CERTIFICATE", x509Cert.getEncoded()));
@@ -284,23 +480,23 @@ public class AcmeCertificateProvider implements CertificateProvider {
             throw new IllegalStateException("无效的证书或私钥格式");
         }
         
-        // 构建证书实体
+        // 中间证书的引用计数随证书记录在同一事务内调整
+        List<Intermediate> intermediates = intermediateCache.describe(chain.subList(1, chain.size()));
+        
+        // 构建证书实体，按域名写入，续期时覆盖原记录
         CertificateEntity certEntity = CertificateEntity.builder()
                 .domain(domain)
                 .certificatePem(certificatePem)
+                .chainFingerprints(IntermediateCertificateCache.joinFingerprints(intermediates))
                 .privateKeyPem(privateKeyPem)
                 .issuedAt(LocalDateTime.now())
-                .expiresAt(LocalDateTime.now().plusDays(90))
-                .status("ACTIVE")
+                .expiresAt(LocalDateTime.ofInstant(x509Cert.getNotAfter().toInstant(), ZoneId.systemDefault()))
+                .status(STATUS_ACTIVE)
                 .acmeAccountUrl(account.getLocation().toString())
                 .build();
         
-        try {
-            return certificateRepository.save(certEntity);
-        } catch (Exception e) {
-            log.error("保存证书信息失败: {}", e.getMessage());
-            throw new RuntimeException("保存证书失败", e);
-        }
+        // 与其他证书写入合并批量提交，调用方等待落盘后再安装
+        return new PendingCertificate(certEntity, certificateStore.save(certEntity, intermediates));
     }
     
     // 其他辅助方法...
@@ -0,0 +1,170 @@
+package com.ssltest.service.impl;
+
+import com.ssltest.service.DnsProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内权威DNS，仅应答TXT查询
+ * 用于本地联调（如Pebble配合 -dnsserver 指向本端口），生产环境应接入实际DNS服务商
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "acme.dns.provider", havingValue = "local")
+public class LocalDnsProvider implements DnsProvider {
+
+    private static final int HEADER_LENGTH = 12;
+    private static final int TYPE_TXT = 16;
+    private static final int TYPE_ANY = 255;
+    private static final int CLASS_IN = 1;
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_AUTHORITATIVE = 0x0400;
+    private static final int FLAG_RECURSION_DESIRED = 0x0100;
+    private static final int RCODE_NXDOMAIN = 3;
+
+    @Value("${acme.dns.local.host:127.0.0.1}")
+    private String host;
+
+    // 避开mDNS使用的5353端口，与Pebble的challtestsrv默认端口一致
+    @Value("${acme.dns.local.port:8053}")
+    private int port;
+
+    @Value("${acme.dns.local.ttl:60}")
+    private int ttl;
+
+    private final ConcurrentHashMap<String, Set<String>> txtRecords = new ConcurrentHashMap<>();
+
+    private DatagramSocket socket;
+
+    @PostConstruct
+    public void start() throws IOException {
+        socket = new DatagramSocket(new InetSocketAddress(host, port));
+        Thread worker = new Thread(this::serve, "local-dns");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("本地DNS服务已启动: {}:{}", host, port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void addTxtRecord(String name, String value) {
+        txtRecords.computeIfAbsent(normalize(name), k -> ConcurrentHashMap.newKeySet()).add(value);
+        log.info("添加TXT记录: {}", name);
+    }
+
+    @Override
+    public void removeTxtRecord(String name, String value) {
+        txtRecords.computeIfPresent(normalize(name), (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+        log.info("删除TXT记录: {}", name);
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                socket.receive(request);
+                byte[] response = answer(request.getData(), request.getLength());
+                if (response != null) {
+                    socket.send(new DatagramPacket(response, response.length, request.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("处理DNS查询失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private byte[] answer(byte[] query, int length) throws IOException {
+        if (length < HEADER_LENGTH || readShort(query, 4) != 1) {
+            return null;
+        }
+
+        // 解析查询名（问题区不使用压缩指针）
+        StringBuilder name = new StringBuilder();
+        int pos = HEADER_LENGTH;
+        while (pos < length && query[pos] != 0) {
+            int labelLength = query[pos] & 0xFF;
+            if (labelLength > 63 || pos + 1 + labelLength > length) {
+                return null;
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(query, pos + 1, labelLength, StandardCharsets.US_ASCII));
+            pos += 1 + labelLength;
+        }
+        int questionEnd = pos + 5;
+        if (questionEnd > length) {
+            return null;
+        }
+        int qtype = readShort(query, pos + 1);
+        int qclass = readShort(query, pos + 3);
+
+        Set<String> values = txtRecords.getOrDefault(normalize(name.toString()), Collections.emptySet());
+        boolean matches = (qtype == TYPE_TXT || qtype == TYPE_ANY) && qclass == CLASS_IN;
+        int answerCount = matches ? values.size() : 0;
+        int flags = FLAG_RESPONSE | FLAG_AUTHORITATIVE | (readShort(query, 2) & FLAG_RECURSION_DESIRED);
+        if (values.isEmpty()) {
+            flags |= RCODE_NXDOMAIN;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(readShort(query, 0));
+        out.writeShort(flags);
+        out.writeShort(1);
+        out.writeShort(answerCount);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.write(query, HEADER_LENGTH, questionEnd - HEADER_LENGTH);
+        if (matches) {
+            for (String value : values) {
+                byte[] text = value.getBytes(StandardCharsets.US_ASCII);
+                out.writeShort(0xC000 | HEADER_LENGTH);
+                out.writeShort(TYPE_TXT);
+                out.writeShort(CLASS_IN);
+                out.writeInt(ttl);
+                out.writeShort(text.length + 1);
+                out.writeByte(text.length);
+                out.write(text);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private String normalize(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+}
@@ -1,5 +1,7 @@
 package com.ssltest.service.impl;
 
+import com.ssltest.exception.CertificateSaveTimeoutException;
+import com.ssltest.exception.CertificateSyncException;
 import com.ssltest.service.CertificateProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,8 @@ public class RetryableAcmeCertificateProvider implements CertificateProvider {
     @Override
     @Retryable(
         value = {Exception.class},
+        // 保存超时或已提交未刷盘时证书已签发，写入已经或可能随后提交，重试会重复下单
+        exclude = {CertificateSaveTimeoutException.class, CertificateSyncException.class},
         maxAttempts = 3,
         backoff = @Backoff(delay = 5000, multiplier = 2)
     )
@@ -0,0 +1,150 @@
+package com.ssltest.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SniHostIndexTest {
+
+    private SniHostIndex<String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SniHostIndex<>();
+    }
+
+    @Test
+    void exactMatchTakesPrecedenceOverWildcard() {
+        index.bind("wildcard", names("*.example.com"), "wildcard-cert");
+        index.bind("www", names("www.example.com"), "www-cert");
+
+        assertEquals("www-cert", index.lookup("www.example.com"));
+        assertEquals("wildcard-cert", index.lookup("api.example.com"));
+    }
+
+    @Test
+    void wildcardMatchesExactlyOneLabel() {
+        index.bind("wildcard", names("*.example.com"), "wildcard-cert");
+
+        assertEquals("wildcard-cert", index.lookup("a.example.com"));
+        assertNull(index.lookup("example.com"));
+        assertNull(index.lookup("a.b.example.com"));
+        assertNull(index.lookup("a.example.org"));
+    }
+
+    @Test
+    void deeperWildcardWinsOverShallowerOne() {
+        index.bind("outer", names("*.example.com"), "outer-cert");
+        index.bind("inner", names("*.tenant.example.com"), "inner-cert");
+
+        assertEquals("inner-cert", index.lookup("t1.tenant.example.com"));
+        assertEquals("outer-cert", index.lookup("tenant.example.com"));
+    }
+
+    @Test
+    void lookupIgnoresCaseAndTrailingDot() {
+        index.bind("www", names("WWW.Example.com."), "www-cert");
+
+        assertEquals("www-cert", index.lookup("www.EXAMPLE.com."));
+        assertNull(index.lookup(""));
+        assertNull(index.lookup(null));
+    }
+
+    @Test
+    void rebindWithSameNamesSwapsValueForAllNames() {
+        index.bind("example.com", names("example.com", "www.example.com", "*.cdn.example.com"), "v1");
+
+        assertEquals("v1", index.bind("example.com", names("*.cdn.example.com", "www.example.com", "example.com"), "v2"));
+
+        assertEquals("v2", index.lookup("example.com"));
+        assertEquals("v2", index.lookup("www.example.com"));
+        assertEquals("v2", index.lookup("img.cdn.example.com"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void rebindWithChangedNamesAttachesNewAndDetachesRemoved() {
+        index.bind("example.com", names("example.com", "old.example.com"), "v1");
+
+        index.bind("example.com", names("example.com", "new.example.com"), "v2");
+
+        assertEquals("v2", index.lookup("example.com"));
+        assertEquals("v2", index.lookup("new.example.com"));
+        assertNull(index.lookup("old.example.com"));
+        assertEquals("v2", index.get("example.com"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void nameTakenOverByAnotherBindingSurvivesUnbind() {
+        index.bind("first", names("shared.example.com", "first.example.com"), "first-cert");
+        index.bind("second", names("shared.example.com"), "second-cert");
+
+        assertEquals("second-cert", index.lookup("shared.example.com"));
+        assertEquals(2, index.size());
+
+        assertEquals("first-cert", index.unbind("first"));
+
+        assertEquals("second-cert", index.lookup("shared.example.com"));
+        assertNull(index.lookup("first.example.com"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void unbindPrunesEmptyNodes() {
+        index.bind("a", names("a.example.com"), "a-cert");
+        index.bind("b", names("b.example.com", "*.b.example.com"), "b-cert");
+        // com, example, a, b
+        assertEquals(4, index.nodeCount());
+
+        index.unbind("a");
+        assertEquals(3, index.nodeCount());
+
+        index.unbind("b");
+        assertEquals(0, index.nodeCount());
+        assertEquals(0, index.size());
+        assertNull(index.lookup("b.example.com"));
+    }
+
+    @Test
+    void pruningKeepsNodesThatStillHoldBindings() {
+        index.bind("parent", names("example.com"), "parent-cert");
+        index.bind("child", names("deep.sub.example.com"), "child-cert");
+
+        index.unbind("child");
+
+        assertEquals(2, index.nodeCount());
+        assertEquals("parent-cert", index.lookup("example.com"));
+
+        index.bind("child", names("deep.sub.example.com"), "child-cert");
+        assertEquals("child-cert", index.lookup("deep.sub.example.com"));
+    }
+
+    @Test
+    void unbindUnknownIdIsNoop() {
+        index.bind("a", names("a.example.com"), "a-cert");
+
+        assertNull(index.unbind("missing"));
+        assertEquals("a-cert", index.lookup("a.example.com"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void valuesReturnsOneEntryPerBinding() {
+        index.bind("multi", names("example.com", "www.example.com"), "multi-cert");
+        index.bind("wildcard", names("*.example.org"), "wildcard-cert");
+
+        assertEquals(names("multi-cert", "wildcard-cert"), new HashSet<>(index.values()));
+        assertEquals(2, index.values().size());
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ssltest.controller;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.model.CertificatePage;
+import com.ssltest.service.CertificateInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 证书清单接口的参数校验和ETag条件请求
+ */
+class SSLTestControllerTest {
+
+    private CertificateInventory inventory;
+
+    private SSLTestController controller;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new CertificateInventory();
+        inventory.onSaved(certificate("a.example.com"));
+        controller = new SSLTestController();
+        ReflectionTestUtils.setField(controller, "certificateInventory", inventory);
+    }
+
+    @Test
+    void unchangedInventoryReturnsNotModified() {
+        ResponseEntity<CertificatePage> first = list(null, null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(list(etag, null, response));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void writeInvalidatesEtag() {
+        String etag = list(null, null).getHeaders().getETag();
+
+        inventory.onSaved(certificate("b.example.com"));
+
+        ResponseEntity<CertificatePage> changed = list(etag, null);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertEquals(2, changed.getBody().getTotal());
+    }
+
+    @Test
+    void etagDiffersAcrossRestarts() throws InterruptedException {
+        String etag = list(null, null).getHeaders().getETag();
+
+        // 重启后重新加载同样的数据，写入次数相同
+        Thread.sleep(2);
+        CertificateInventory restarted = new CertificateInventory();
+        restarted.onSaved(certificate("a.example.com"));
+        ReflectionTestUtils.setField(controller, "certificateInventory", restarted);
+
+        assertEquals(HttpStatus.OK, list(etag, null).getStatusCode());
+    }
+
+    @Test
+    void outOfRangeExpiresWithinDaysIsBadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, list(null, Integer.MAX_VALUE).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, list(null, Integer.MIN_VALUE).getStatusCode());
+        assertEquals(HttpStatus.OK, list(null, 36500).getStatusCode());
+        assertEquals(HttpStatus.OK, list(null, -36500).getStatusCode());
+    }
+
+    private ResponseEntity<CertificatePage> list(String ifNoneMatch, Integer expiresWithinDays) {
+        return list(ifNoneMatch, expiresWithinDays, new MockHttpServletResponse());
+    }
+
+    private ResponseEntity<CertificatePage> list(String ifNoneMatch, Integer expiresWithinDays,
+            MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ssl/certificates");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return controller.listCertificates(null, expiresWithinDays, 0, 50, new ServletWebRequest(request, response));
+    }
+
+    private static CertificateEntity certificate(String domain) {
+        LocalDateTime now = LocalDateTime.now();
+        return CertificateEntity.builder()
+                .domain(domain)
+                .issuedAt(now)
+                .expiresAt(now.plusDays(90))
+                .status("ACTIVE")
+                .build();
+    }
+}
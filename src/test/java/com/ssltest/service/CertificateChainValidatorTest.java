@@ -0,0 +1,99 @@
+package com.ssltest.service;
+
+import com.ssltest.exception.SSLConfigurationException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 证书链顺序和完整性校验，严格模式拒绝不完整的链，非严格模式只告警
+ */
+class CertificateChainValidatorTest {
+
+    private static TestCertificates certificates;
+
+    private CertificateChainValidator validator;
+
+    @BeforeAll
+    static void createCertificates() {
+        certificates = new TestCertificates();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        validator = new CertificateChainValidator();
+        ReflectionTestUtils.setField(validator, "strictChainCheck", true);
+        validator.init();
+    }
+
+    @Test
+    void completeChainIsReturnedInOrder() {
+        List<X509Certificate> chain = validator.validate(
+                TestCertificates.toPem(certificates.leaf, certificates.intermediate, certificates.root));
+
+        assertEquals(Arrays.asList(certificates.leaf, certificates.intermediate, certificates.root), chain);
+    }
+
+    @Test
+    void selfSignedCertificateIsComplete() {
+        assertEquals(1, validator.validate(TestCertificates.toPem(certificates.root)).size());
+    }
+
+    @Test
+    void outOfOrderChainIsRejected() {
+        SSLConfigurationException e = assertThrows(SSLConfigurationException.class, () -> validator.validate(
+                TestCertificates.toPem(certificates.intermediate, certificates.leaf, certificates.root)));
+        assertTrue(e.getMessage().startsWith("证书链顺序错误"), e.getMessage());
+    }
+
+    @Test
+    void missingIntermediateBetweenLeafAndRootIsRejected() {
+        assertThrows(SSLConfigurationException.class, () -> validator.validate(
+                TestCertificates.toPem(certificates.leaf, certificates.root)));
+    }
+
+    @Test
+    void issuerWithMatchingNameButWrongKeyIsRejected() {
+        assertThrows(SSLConfigurationException.class, () -> validator.validate(
+                TestCertificates.toPem(certificates.leaf, certificates.impostor())));
+    }
+
+    @Test
+    void strictModeRejectsChainNotEndingAtTrustedRoot() {
+        SSLConfigurationException e = assertThrows(SSLConfigurationException.class, () -> validator.validate(
+                TestCertificates.toPem(certificates.leaf, certificates.intermediate)));
+        assertTrue(e.getMessage().contains("CN=Test Root"), e.getMessage());
+    }
+
+    @Test
+    void warnModeAcceptsChainNotEndingAtTrustedRoot() {
+        ReflectionTestUtils.setField(validator, "strictChainCheck", false);
+
+        List<X509Certificate> chain = validator.validate(
+                TestCertificates.toPem(certificates.leaf, certificates.intermediate));
+
+        assertEquals(Arrays.asList(certificates.leaf, certificates.intermediate), chain);
+    }
+
+    @Test
+    void warnModeStillRejectsOutOfOrderChain() {
+        ReflectionTestUtils.setField(validator, "strictChainCheck", false);
+
+        assertThrows(SSLConfigurationException.class, () -> validator.validate(
+                TestCertificates.toPem(certificates.intermediate, certificates.leaf)));
+    }
+
+    @Test
+    void emptyChainIsRejected() {
+        assertThrows(SSLConfigurationException.class, () -> validator.validate(""));
+    }
+}
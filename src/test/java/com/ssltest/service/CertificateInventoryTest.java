@@ -0,0 +1,127 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.model.CertificatePage;
+import com.ssltest.model.CertificateSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 证书清单的分页和过滤：按过期时间升序，剩余天数按自然日计算
+ */
+class CertificateInventoryTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private CertificateInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new CertificateInventory();
+    }
+
+    @Test
+    void pagesAreOrderedByExpiry() {
+        save("c.example.com", TODAY.plusDays(30).atStartOfDay(), "ACTIVE");
+        save("a.example.com", TODAY.plusDays(10).atStartOfDay(), "ACTIVE");
+        save("e.example.com", TODAY.plusDays(50).atStartOfDay(), "ACTIVE");
+        save("b.example.com", TODAY.plusDays(20).atStartOfDay(), "ACTIVE");
+        save("d.example.com", TODAY.plusDays(40).atStartOfDay(), "ACTIVE");
+
+        assertPage(inventory.query(null, null, 0, 2), 5, "a.example.com", "b.example.com");
+        assertPage(inventory.query(null, null, 1, 2), 5, "c.example.com", "d.example.com");
+        assertPage(inventory.query(null, null, 2, 2), 5, "e.example.com");
+        assertPage(inventory.query(null, null, 3, 2), 5);
+    }
+
+    @Test
+    void renewalMovesCertificateToNewPosition() {
+        save("a.example.com", TODAY.plusDays(10).atStartOfDay(), "ACTIVE");
+        save("b.example.com", TODAY.plusDays(20).atStartOfDay(), "ACTIVE");
+
+        save("a.example.com", TODAY.plusDays(90).atStartOfDay(), "ACTIVE");
+
+        assertPage(inventory.query(null, null, 0, 10), 2, "b.example.com", "a.example.com");
+    }
+
+    @Test
+    void statusFilterIsCaseInsensitiveAndCountsOnlyMatches() {
+        save("a.example.com", TODAY.plusDays(10).atStartOfDay(), "ACTIVE");
+        save("b.example.com", TODAY.plusDays(20).atStartOfDay(), "EXPIRED");
+        save("c.example.com", TODAY.plusDays(30).atStartOfDay(), "ACTIVE");
+        save("d.example.com", TODAY.plusDays(40).atStartOfDay(), "ACTIVE");
+
+        assertPage(inventory.query("active", null, 0, 2), 3, "a.example.com", "c.example.com");
+        assertPage(inventory.query("active", null, 1, 2), 3, "d.example.com");
+
+        inventory.onStatusChanged("c.example.com", "EXPIRED");
+        inventory.onStatusChanged("missing.example.com", "EXPIRED");
+        assertPage(inventory.query("EXPIRED", null, 0, 10), 2, "b.example.com", "c.example.com");
+    }
+
+    @Test
+    void expiresWithinDaysIncludesTheWholeLastDay() {
+        save("expired.example.com", TODAY.minusDays(3).atStartOfDay(), "EXPIRED");
+        save("today.example.com", TODAY.atTime(LocalTime.MAX), "ACTIVE");
+        save("last-day-start.example.com", TODAY.plusDays(7).atStartOfDay(), "ACTIVE");
+        save("last-day-end.example.com", TODAY.plusDays(7).atTime(LocalTime.MAX), "ACTIVE");
+        save("next-day.example.com", TODAY.plusDays(8).atStartOfDay(), "ACTIVE");
+
+        assertPage(inventory.query(null, 7, 0, 10), 4, "expired.example.com", "today.example.com",
+                "last-day-start.example.com", "last-day-end.example.com");
+        assertPage(inventory.query(null, 0, 0, 10), 2, "expired.example.com", "today.example.com");
+        assertPage(inventory.query("active", 7, 0, 1), 3, "today.example.com");
+
+        // 与返回的剩余天数一致
+        for (CertificateSummary summary : inventory.query(null, 7, 0, 10).getItems()) {
+            assertTrue(summary.getDaysToExpiry() <= 7);
+        }
+    }
+
+    @Test
+    void versionStartsAtBootTimeAndChangesOnEveryWrite() {
+        long before = System.currentTimeMillis();
+        CertificateInventory inventory = new CertificateInventory();
+        assertTrue(inventory.getVersion() >= before);
+
+        long initial = inventory.getVersion();
+        inventory.onSaved(certificate("a.example.com", TODAY.plusDays(10).atStartOfDay(), "ACTIVE"));
+        long saved = inventory.getVersion();
+        assertNotEquals(initial, saved);
+
+        inventory.onStatusChanged("a.example.com", "EXPIRED");
+        assertNotEquals(saved, inventory.getVersion());
+    }
+
+    private void save(String domain, LocalDateTime expiresAt, String status) {
+        inventory.onSaved(certificate(domain, expiresAt, status));
+    }
+
+    private static CertificateEntity certificate(String domain, LocalDateTime expiresAt, String status) {
+        return CertificateEntity.builder()
+                .domain(domain)
+                .issuedAt(expiresAt.minusDays(90))
+                .expiresAt(expiresAt)
+                .status(status)
+                .build();
+    }
+
+    private static void assertPage(CertificatePage page, long total, String... domains) {
+        List<String> actual = page.getItems().stream()
+                .map(CertificateSummary::getDomain)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(domains), actual);
+        assertEquals(total, page.getTotal());
+    }
+}
@@ -0,0 +1,179 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 写入语句在H2文件库上执行：MERGE ... KEY(domain)、SELECT ... FOR UPDATE、引用计数加减和每批的CHECKPOINT SYNC
+ * 表结构与实体映射生成的一致
+ */
+class CertificateWriteBehindStoreH2Test {
+
+    private static final String CREATE_CERTIFICATES_SQL = "CREATE TABLE certificates ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, domain VARCHAR(255) NOT NULL UNIQUE, "
+            + "certificate_pem CHARACTER LARGE OBJECT, chain_fingerprints VARCHAR(1024), "
+            + "private_key_pem CHARACTER LARGE OBJECT, issued_at TIMESTAMP NOT NULL, expires_at TIMESTAMP NOT NULL, "
+            + "status VARCHAR(20), acme_account_url VARCHAR(512))";
+
+    private static final String CREATE_INTERMEDIATES_SQL = "CREATE TABLE intermediate_certificates ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, fingerprint VARCHAR(64) NOT NULL UNIQUE, "
+            + "subject VARCHAR(512), certificate_pem CHARACTER LARGE OBJECT, ref_count INT NOT NULL)";
+
+    private static final Intermediate OLD_INTERMEDIATE = intermediate('a', "CN=Old Intermediate");
+    private static final Intermediate NEW_INTERMEDIATE = intermediate('b', "CN=New Intermediate");
+
+    @TempDir
+    Path directory;
+
+    private HikariDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private IntermediateCertificateCache intermediateCache;
+
+    private CertificateWriteBehindStore store;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:h2:file:" + directory.resolve("certdb");
+        // 与应用相同使用连接池，连接保持打开，数据库不会在每条语句后关闭
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CREATE_CERTIFICATES_SQL);
+        jdbcTemplate.execute(CREATE_INTERMEDIATES_SQL);
+
+        intermediateCache = new IntermediateCertificateCache();
+        store = new CertificateWriteBehindStore();
+        ReflectionTestUtils.setField(store, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(store, "batchSize", 500);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 100L);
+        ReflectionTestUtils.setField(store, "enqueueTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(store, "shutdownTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(store, "datasourceUrl", url);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(store, "certificateInventory", new CertificateInventory());
+        ReflectionTestUtils.setField(store, "intermediateCache", intermediateCache);
+        store.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.stop();
+        dataSource.close();
+    }
+
+    @Test
+    void renewalMovesIntermediateReferences() throws Exception {
+        save(certificate("a.example.com", OLD_INTERMEDIATE));
+        save(certificate("b.example.com", OLD_INTERMEDIATE));
+        assertEquals(Integer.valueOf(2), refCount(OLD_INTERMEDIATE));
+
+        save(certificate("a.example.com", NEW_INTERMEDIATE));
+        assertEquals(Integer.valueOf(1), refCount(OLD_INTERMEDIATE));
+        assertEquals(Integer.valueOf(1), refCount(NEW_INTERMEDIATE));
+        assertEquals(NEW_INTERMEDIATE.getFingerprint(), chainOf("a.example.com"));
+
+        // 最后一个引用转移后旧中间证书从数据库和缓存中移除
+        save(certificate("b.example.com", NEW_INTERMEDIATE));
+        assertNull(refCount(OLD_INTERMEDIATE));
+        assertEquals(Integer.valueOf(2), refCount(NEW_INTERMEDIATE));
+        assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM certificates", Integer.class));
+        assertEquals(1, intermediateCache.size());
+    }
+
+    @Test
+    void batchedRenewalsKeepRefCountsConsistent() throws Exception {
+        // 不等待地提交，同一域名在一批内多次出现，由合并后的最后一次写入决定引用
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            Intermediate intermediate = round % 2 == 0 ? OLD_INTERMEDIATE : NEW_INTERMEDIATE;
+            for (int i = 0; i < 100; i++) {
+                writes.add(store.save(certificate("host" + i + ".example.com", intermediate), chain(intermediate)));
+            }
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertEquals(Integer.valueOf(100), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM certificates", Integer.class));
+        assertEquals(Integer.valueOf(100), refCount(OLD_INTERMEDIATE));
+        assertNull(refCount(NEW_INTERMEDIATE));
+    }
+
+    @Test
+    void statusChangeIsPersisted() throws Exception {
+        save(certificate("a.example.com", OLD_INTERMEDIATE));
+
+        store.updateStatus("a.example.com", "EXPIRED").get(5, TimeUnit.SECONDS);
+        store.updateStatus("missing.example.com", "EXPIRED").get(5, TimeUnit.SECONDS);
+
+        assertEquals("EXPIRED", jdbcTemplate.queryForObject(
+                "SELECT status FROM certificates WHERE domain = ?", String.class, "a.example.com"));
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM certificates", Integer.class));
+    }
+
+    private void save(CertificateEntity entity) throws Exception {
+        Intermediate intermediate = entity.getChainFingerprints().equals(OLD_INTERMEDIATE.getFingerprint())
+                ? OLD_INTERMEDIATE : NEW_INTERMEDIATE;
+        store.save(entity, chain(intermediate)).get(5, TimeUnit.SECONDS);
+    }
+
+    private Integer refCount(Intermediate intermediate) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT ref_count FROM intermediate_certificates WHERE fingerprint = ?",
+                Integer.class, intermediate.getFingerprint());
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+
+    private String chainOf(String domain) {
+        return jdbcTemplate.queryForObject(
+                "SELECT chain_fingerprints FROM certificates WHERE domain = ?", String.class, domain);
+    }
+
+    private static CertificateEntity certificate(String domain, Intermediate intermediate) {
+        LocalDateTime now = LocalDateTime.now();
+        return CertificateEntity.builder()
+                .domain(domain)
+                .certificatePem("PEM")
+                .chainFingerprints(intermediate.getFingerprint())
+                .privateKeyPem("KEY")
+                .issuedAt(now)
+                .expiresAt(now.plusDays(90))
+                .status("ACTIVE")
+                .build();
+    }
+
+    private static List<Intermediate> chain(Intermediate intermediate) {
+        return Collections.singletonList(intermediate);
+    }
+
+    private static Intermediate intermediate(char fill, String subject) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            fingerprint.append(fill);
+        }
+        return new Intermediate(fingerprint.toString(), subject, "PEM", null);
+    }
+}
@@ -0,0 +1,315 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.CertificateEntity;
+import com.ssltest.exception.CertificateSyncException;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 证书写入的批量合并、状态变更和停止时的处理，数据库由内存中的 {@link FakeJdbcTemplate} 代替
+ */
+class CertificateWriteBehindStoreTest {
+
+    private static final Intermediate INTERMEDIATE = new Intermediate("fp-intermediate", "CN=Test Intermediate", "PEM", null);
+
+    private FakeJdbcTemplate jdbcTemplate;
+
+    private CertificateWriteBehindStore store;
+
+    private CertificateInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new FakeJdbcTemplate();
+        inventory = new CertificateInventory();
+        store = new CertificateWriteBehindStore();
+        ReflectionTestUtils.setField(store, "queueCapacity", 10000);
+        ReflectionTestUtils.setField(store, "batchSize", 500);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 100L);
+        ReflectionTestUtils.setField(store, "enqueueTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(store, "shutdownTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(store, "datasourceUrl", "jdbc:h2:mem:test");
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "transactionTemplate", new DirectTransactionTemplate());
+        ReflectionTestUtils.setField(store, "certificateInventory", inventory);
+        ReflectionTestUtils.setField(store, "intermediateCache", new IntermediateCertificateCache());
+        store.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        jdbcTemplate.release();
+        store.stop();
+    }
+
+    @Test
+    void writesQueuedDuringCommitAreFlushedTogether() throws Exception {
+        jdbcTemplate.hold();
+        CompletableFuture<Void> first = store.save(certificate(0), chain());
+        assertTrue(jdbcTemplate.awaitHeld());
+
+        // 第一批提交期间提交其余写入，之后按批大小合并
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            writes.add(store.save(certificate(i), chain()));
+        }
+        jdbcTemplate.release();
+        first.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1001, jdbcTemplate.chains.size());
+        assertEquals(3, jdbcTemplate.upsertBatches.size());
+        assertEquals(Integer.valueOf(1001), jdbcTemplate.refCounts.get(INTERMEDIATE.getFingerprint()));
+    }
+
+    @Test
+    void singleWriteIsFlushedWithoutWaitingForBatch() throws Exception {
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 2000L);
+
+        long start = System.nanoTime();
+        store.save(certificate(0), chain()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(Collections.singletonList(1), jdbcTemplate.upsertBatches);
+    }
+
+    @Test
+    void statusChangeIsWrittenAndMergedIntoPendingUpsert() throws Exception {
+        store.save(certificate(0), chain()).get(5, TimeUnit.SECONDS);
+        store.updateStatus("host0.example.com", "EXPIRED").get(5, TimeUnit.SECONDS);
+        assertEquals("EXPIRED", jdbcTemplate.statuses.get("host0.example.com"));
+        assertEquals(Collections.singletonList(1), jdbcTemplate.upsertBatches);
+
+        // 同一批内的状态变更并入证书写入，不再单独更新
+        jdbcTemplate.hold();
+        CompletableFuture<Void> blocker = store.save(certificate(1), chain());
+        assertTrue(jdbcTemplate.awaitHeld());
+        CompletableFuture<Void> saved = store.save(certificate(2), chain());
+        CompletableFuture<Void> expired = store.updateStatus("host2.example.com", "EXPIRED");
+        jdbcTemplate.release();
+        CompletableFuture.allOf(blocker, saved, expired).get(5, TimeUnit.SECONDS);
+
+        assertEquals("EXPIRED", jdbcTemplate.statuses.get("host2.example.com"));
+        assertEquals(1, jdbcTemplate.statusUpdates.get());
+    }
+
+    @Test
+    void mergedStatusChangeLeavesCallerEntityUnchanged() throws Exception {
+        jdbcTemplate.hold();
+        CompletableFuture<Void> blocker = store.save(certificate(0), chain());
+        assertTrue(jdbcTemplate.awaitHeld());
+        CertificateEntity entity = certificate(1);
+        CompletableFuture<Void> saved = store.save(entity, chain());
+        CompletableFuture<Void> expired = store.updateStatus("host1.example.com", "EXPIRED");
+        jdbcTemplate.release();
+        CompletableFuture.allOf(blocker, saved, expired).get(5, TimeUnit.SECONDS);
+
+        assertEquals("EXPIRED", jdbcTemplate.statuses.get("host1.example.com"));
+        assertEquals("ACTIVE", entity.getStatus());
+    }
+
+    @Test
+    void syncFailureAfterCommitIsReportedSeparately() throws Exception {
+        ReflectionTestUtils.setField(store, "datasourceUrl", "jdbc:h2:file:./data/test");
+        jdbcTemplate.failSync = true;
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> store.save(certificate(0), chain()).get(5, TimeUnit.SECONDS));
+
+        assertTrue(failure.getCause() instanceof CertificateSyncException);
+        // 已提交的写入照常进入内存索引
+        assertTrue(jdbcTemplate.chains.containsKey("host0.example.com"));
+        assertEquals(1, inventory.query(null, null, 0, 10).getTotal());
+    }
+
+    @Test
+    void inMemoryUpdateFailureAfterCommitStillCompletesWrite() throws Exception {
+        ReflectionTestUtils.setField(store, "certificateInventory", new CertificateInventory() {
+            @Override
+            public void onSaved(CertificateEntity entity) {
+                throw new IllegalStateException("index");
+            }
+        });
+
+        store.save(certificate(0), chain()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(jdbcTemplate.chains.containsKey("host0.example.com"));
+    }
+
+    @Test
+    void saveAfterStopIsRejected() throws Exception {
+        store.stop();
+
+        assertThrows(IllegalStateException.class, () -> store.save(certificate(0), chain()));
+    }
+
+    @Test
+    void stopFailsWritesLeftAfterTimeout() throws Exception {
+        ReflectionTestUtils.setField(store, "shutdownTimeoutSeconds", 1L);
+        jdbcTemplate.hold();
+        CompletableFuture<Void> inFlight = store.save(certificate(0), chain());
+        assertTrue(jdbcTemplate.awaitHeld());
+        CompletableFuture<Void> queued = store.save(certificate(1), chain());
+
+        store.stop();
+
+        assertTrue(queued.isCompletedExceptionally());
+        jdbcTemplate.release();
+        inFlight.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void interruptedFlusherFailsQueuedWrites() throws Exception {
+        jdbcTemplate.hold();
+        CompletableFuture<Void> inFlight = store.save(certificate(0), chain());
+        assertTrue(jdbcTemplate.awaitHeld());
+        CompletableFuture<Void> queued = store.save(certificate(1), chain());
+
+        Thread flusher = (Thread) ReflectionTestUtils.getField(store, "flusher");
+        flusher.interrupt();
+        jdbcTemplate.release();
+        flusher.join(5000);
+
+        inFlight.get(5, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> store.save(certificate(2), chain()));
+    }
+
+    private static CertificateEntity certificate(int i) {
+        LocalDateTime now = LocalDateTime.now();
+        return CertificateEntity.builder()
+                .domain("host" + i + ".example.com")
+                .certificatePem("PEM")
+                .chainFingerprints(INTERMEDIATE.getFingerprint())
+                .privateKeyPem("KEY")
+                .issuedAt(now)
+                .expiresAt(now.plusDays(90))
+                .status("ACTIVE")
+                .build();
+    }
+
+    private static List<Intermediate> chain() {
+        return Collections.singletonList(INTERMEDIATE);
+    }
+
+    private static final class DirectTransactionTemplate extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+
+    /**
+     * 按SQL语句模拟证书表和中间证书表，可以在证书写入时阻塞以模拟慢提交
+     */
+    private static final class FakeJdbcTemplate extends JdbcTemplate {
+
+        private final Map<String, String> chains = new ConcurrentHashMap<>();
+        private final Map<String, Integer> refCounts = new ConcurrentHashMap<>();
+        private final Map<String, String> statuses = new ConcurrentHashMap<>();
+        private final List<Integer> upsertBatches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger statusUpdates = new AtomicInteger();
+
+        private volatile boolean failSync;
+
+        private volatile CountDownLatch held = new CountDownLatch(0);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void hold() {
+            held = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+        }
+
+        boolean awaitHeld() throws InterruptedException {
+            return held.await(5, TimeUnit.SECONDS);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            String chain = chains.get((String) args[0]);
+            return chain == null ? Collections.emptyList() : Collections.singletonList((T) chain);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return (T) Integer.valueOf(refCounts.containsKey((String) args[0]) ? 1 : 0);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            int[] updated = new int[batchArgs.size()];
+            if (sql.startsWith("MERGE INTO certificates")) {
+                held.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                upsertBatches.add(batchArgs.size());
+                for (Object[] args : batchArgs) {
+                    chains.put((String) args[0], (String) args[2]);
+                    statuses.put((String) args[0], (String) args[6]);
+                }
+            } else if (sql.startsWith("UPDATE certificates")) {
+                for (Object[] args : batchArgs) {
+                    statuses.put((String) args[1], (String) args[0]);
+                    statusUpdates.incrementAndGet();
+                }
+            } else if (sql.startsWith("INSERT INTO intermediate_certificates")) {
+                for (Object[] args : batchArgs) {
+                    refCounts.put((String) args[0], 0);
+                }
+            } else if (sql.startsWith("UPDATE intermediate_certificates")) {
+                for (Object[] args : batchArgs) {
+                    refCounts.merge((String) args[1], (Integer) args[0], Integer::sum);
+                }
+            } else if (sql.startsWith("DELETE FROM intermediate_certificates")) {
+                for (int i = 0; i < batchArgs.size(); i++) {
+                    String fingerprint = (String) batchArgs.get(i)[0];
+                    if (refCounts.getOrDefault(fingerprint, 1) <= 0) {
+                        refCounts.remove(fingerprint);
+                        updated[i] = 1;
+                    }
+                }
+            }
+            return updated;
+        }
+
+        @Override
+        public void execute(String sql) {
+            if (failSync) {
+                throw new DataAccessResourceFailureException("磁盘写入失败");
+            }
+        }
+    }
+}
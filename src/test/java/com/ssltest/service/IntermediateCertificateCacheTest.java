@@ -0,0 +1,154 @@
+package com.ssltest.service;
+
+import com.ssltest.entity.IntermediateCertificateEntity;
+import com.ssltest.repository.IntermediateCertificateRepository;
+import com.ssltest.service.IntermediateCertificateCache.Intermediate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 中间证书按指纹去重：同一中间证书只缓存一份，缓存条目与数据库中的记录一一对应
+ */
+class IntermediateCertificateCacheTest {
+
+    private static TestCertificates certificates;
+
+    // 数据库中的中间证书，按指纹索引
+    private final Map<String, IntermediateCertificateEntity> stored = new ConcurrentHashMap<>();
+
+    private IntermediateCertificateCache cache;
+
+    @BeforeAll
+    static void createCertificates() {
+        certificates = new TestCertificates();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new IntermediateCertificateCache();
+        IntermediateCertificateRepository repository = (IntermediateCertificateRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {IntermediateCertificateRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByFingerprint")) {
+                        return stored.get((String) args[0]);
+                    }
+                    if (method.getName().equals("toString")) {
+                        return "IntermediateCertificateRepository" + stored.keySet();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        ReflectionTestUtils.setField(cache, "intermediateRepository", repository);
+    }
+
+    @Test
+    void describeComputesFingerprintAndPemInChainOrder() throws Exception {
+        List<Intermediate> described = cache.describe(Arrays.asList(certificates.intermediate, certificates.root));
+
+        assertEquals(2, described.size());
+        assertEquals(64, described.get(0).getFingerprint().length());
+        assertEquals(TestCertificates.toPem(certificates.intermediate), described.get(0).getCertificatePem());
+        assertEquals(TestCertificates.toPem(certificates.root), described.get(1).getCertificatePem());
+        assertEquals(described.get(0).getFingerprint() + "," + described.get(1).getFingerprint(),
+                IntermediateCertificateCache.joinFingerprints(described));
+        // 只计算，不登记
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void sameIntermediateIsDeduplicatedByFingerprint() throws Exception {
+        Intermediate first = cache.describe(Collections.singletonList(certificates.intermediate)).get(0);
+        cache.onCommitted(Collections.singletonList(first), Collections.emptyList());
+
+        // 另一次签发返回的同一中间证书是不同的对象，按指纹命中缓存
+        X509Certificate reissued = reparse(certificates.intermediate);
+        Intermediate second = cache.describe(Collections.singletonList(reissued)).get(0);
+        cache.onCommitted(Collections.singletonList(second), Collections.emptyList());
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shareReplacesPersistedIntermediatesWithOneInstance() throws Exception {
+        Intermediate intermediate = persist(certificates.intermediate);
+
+        List<X509Certificate> first = cache.share(Arrays.asList(certificates.leaf, reparse(certificates.intermediate)));
+        List<X509Certificate> second = cache.share(Arrays.asList(certificates.leaf, reparse(certificates.intermediate)));
+
+        assertSame(certificates.leaf, first.get(0));
+        assertSame(first.get(1), second.get(1));
+        assertEquals(intermediate.getCertificate(), first.get(1));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shareDoesNotCacheUnpersistedIntermediates() throws Exception {
+        X509Certificate uploaded = reparse(certificates.intermediate);
+
+        List<X509Certificate> shared = cache.share(Arrays.asList(certificates.leaf, uploaded));
+
+        // 没有数据库记录就没有引用计数，加入缓存后无法移除
+        assertSame(uploaded, shared.get(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void removedIntermediateIsEvicted() throws Exception {
+        Intermediate intermediate = persist(certificates.intermediate);
+        cache.share(Arrays.asList(certificates.leaf, certificates.intermediate));
+        assertEquals(1, cache.size());
+
+        stored.remove(intermediate.getFingerprint());
+        cache.onCommitted(Collections.emptyList(), Collections.singletonList(intermediate.getFingerprint()));
+
+        assertEquals(0, cache.size());
+        X509Certificate uploaded = reparse(certificates.intermediate);
+        assertSame(uploaded, cache.share(Arrays.asList(certificates.leaf, uploaded)).get(1));
+    }
+
+    @Test
+    void resolveChainPemFollowsFingerprintOrder() throws Exception {
+        Intermediate intermediate = persist(certificates.intermediate);
+        Intermediate root = persist(certificates.root);
+
+        assertEquals(intermediate.getCertificatePem() + root.getCertificatePem(),
+                cache.resolveChainPem(IntermediateCertificateCache.joinFingerprints(Arrays.asList(intermediate, root))));
+        assertEquals("", cache.resolveChainPem(""));
+    }
+
+    @Test
+    void resolveChainPemFailsOnMissingIntermediate() throws Exception {
+        Intermediate intermediate = cache.describe(Collections.singletonList(certificates.intermediate)).get(0);
+
+        assertThrows(IllegalStateException.class, () -> cache.resolveChainPem(intermediate.getFingerprint()));
+    }
+
+    private Intermediate persist(X509Certificate certificate) throws Exception {
+        Intermediate intermediate = cache.describe(Collections.singletonList(certificate)).get(0);
+        stored.put(intermediate.getFingerprint(), IntermediateCertificateEntity.builder()
+                .fingerprint(intermediate.getFingerprint())
+                .subject(intermediate.getSubject())
+                .certificatePem(intermediate.getCertificatePem())
+                .refCount(1)
+                .build());
+        return intermediate;
+    }
+
+    private static X509Certificate reparse(X509Certificate certificate) {
+        return new CertificateChainValidator().parseChain(TestCertificates.toPem(certificate)).get(0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ssltest.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 共享存储路径下的Session Ticket密钥：节点间一致，按周期轮换
+ */
+class SessionTicketKeyStoreTest {
+
+    private static final int KEY = SessionTicketKeyStore.KEY_LENGTH;
+
+    @TempDir
+    Path storage;
+
+    @Test
+    void nodesSharingStoragePathUseSameKeys() throws Exception {
+        SessionTicketKeyStore first = store();
+        SessionTicketKeyStore second = store();
+        assertNull(first.getTicketKeys());
+
+        assertTrue(first.refresh());
+        assertTrue(second.refresh());
+
+        assertEquals(KEY * 3, first.getTicketKeys().length);
+        assertArrayEquals(first.getTicketKeys(), second.getTicketKeys());
+    }
+
+    @Test
+    void refreshWithoutRotationKeepsKeys() throws Exception {
+        SessionTicketKeyStore store = store();
+        store.refresh();
+        byte[] keys = store.getTicketKeys();
+
+        assertFalse(store.refresh());
+        assertArrayEquals(keys, store.getTicketKeys());
+    }
+
+    @Test
+    void rotationPromotesNextKeyAndKeepsPreviousForDecryption() throws Exception {
+        SessionTicketKeyStore rotating = store();
+        SessionTicketKeyStore other = store();
+        rotating.refresh();
+        other.refresh();
+        byte[] before = rotating.getTicketKeys();
+        ageKeyFile(13);
+
+        assertTrue(rotating.refresh());
+        byte[] after = rotating.getTicketKeys();
+
+        // 新的当前密钥是之前已分发的下一个密钥，原当前密钥降为上一个
+        assertArrayEquals(Arrays.copyOfRange(before, KEY, KEY * 2), Arrays.copyOfRange(after, 0, KEY));
+        assertArrayEquals(Arrays.copyOfRange(before, 0, KEY), Arrays.copyOfRange(after, KEY * 2, KEY * 3));
+
+        // 其他节点同步后不再重复轮换
+        assertTrue(other.refresh());
+        assertArrayEquals(after, other.getTicketKeys());
+    }
+
+    @Test
+    void invalidKeyFileIsRegenerated() throws Exception {
+        Path keyFile = storage.resolve("keys/session-ticket.keys");
+        Files.createDirectories(keyFile.getParent());
+        Files.write(keyFile, "not-a-key\n".getBytes(StandardCharsets.US_ASCII));
+
+        SessionTicketKeyStore store = store();
+        assertTrue(store.refresh());
+
+        assertEquals(KEY * 3, store.getTicketKeys().length);
+        assertEquals(3, Files.readAllLines(keyFile).size());
+    }
+
+    private SessionTicketKeyStore store() {
+        SessionTicketKeyStore store = new SessionTicketKeyStore();
+        ReflectionTestUtils.setField(store, "storagePath", storage.toString());
+        ReflectionTestUtils.setField(store, "rotationHours", 12L);
+        return store;
+    }
+
+    private void ageKeyFile(long hours) throws Exception {
+        Path keyFile = storage.resolve("keys/session-ticket.keys");
+        Files.setLastModifiedTime(keyFile,
+                FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours)));
+    }
+}
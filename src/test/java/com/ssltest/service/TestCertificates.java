@@ -0,0 +1,81 @@
+package com.ssltest.service;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemWriter;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试用的三级证书链：根证书（自签名）→ 中间证书 → 叶子证书
+ */
+final class TestCertificates {
+
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    final KeyPair rootKey = generateKeyPair();
+    final X509Certificate root = issue("CN=Test Root", rootKey, "CN=Test Root", rootKey, true);
+
+    final KeyPair intermediateKey = generateKeyPair();
+    final X509Certificate intermediate = issue("CN=Test Intermediate", intermediateKey, "CN=Test Root", rootKey, true);
+
+    final KeyPair leafKey = generateKeyPair();
+    final X509Certificate leaf = issue("CN=www.example.com", leafKey, "CN=Test Intermediate", intermediateKey, false);
+
+    /**
+     * 与 {@link #intermediate} 主题相同但密钥不同的中间证书，名称匹配而签名不匹配
+     */
+    X509Certificate impostor() {
+        return issue("CN=Test Intermediate", generateKeyPair(), "CN=Test Root", rootKey, true);
+    }
+
+    static String toPem(X509Certificate... certificates) {
+        StringWriter writer = new StringWriter();
+        try (PemWriter pemWriter = new PemWriter(writer)) {
+            for (X509Certificate certificate : certificates) {
+                pemWriter.writeObject(new PemObject("CERTIFICATE", certificate.getEncoded()));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static X509Certificate issue(String subject, KeyPair subjectKey, String issuer, KeyPair issuerKey,
+            boolean ca) {
+        try {
+            Date notBefore = new Date();
+            Date notAfter = new Date(notBefore.getTime() + TimeUnit.DAYS.toMillis(90));
+            JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(issuer),
+                    BigInteger.valueOf(SERIAL.incrementAndGet()), notBefore, notAfter, new X500Name(subject),
+                    subjectKey.getPublic());
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+            return new JcaX509CertificateConverter().getCertificate(
+                    builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(issuerKey.getPrivate())));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ssltest.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 通配符区域的证书订单合并：租户子域名共用一个 *.zone 订单
+ */
+class AcmeCertificateProviderTest {
+
+    private static final int TENANTS = 1000;
+
+    private AcmeCertificateProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new AcmeCertificateProvider();
+        ReflectionTestUtils.setField(provider, "wildcardZones", new String[] {"tenant.example.com", " other.example.org "});
+    }
+
+    @Test
+    void tenantSubdomainsShareOneWildcardOrder() {
+        Set<String> orders = new HashSet<>();
+        for (int i = 0; i < TENANTS; i++) {
+            orders.add(toCertificateDomain("t" + i + ".tenant.example.com"));
+        }
+
+        // 每个租户单独申请需要1000个订单，合并后只剩1个
+        assertEquals(Collections.singleton("*.tenant.example.com"), orders);
+    }
+
+    @Test
+    void onlyFirstLevelSubdomainsUseWildcard() {
+        assertEquals("*.other.example.org", toCertificateDomain("Shop.Other.Example.org"));
+        assertEquals("a.b.tenant.example.com", toCertificateDomain("a.b.tenant.example.com"));
+        assertEquals("tenant.example.com", toCertificateDomain("tenant.example.com"));
+        assertEquals("www.example.com", toCertificateDomain("www.example.com"));
+        assertEquals("*.example.com", toCertificateDomain("*.example.com"));
+    }
+
+    private String toCertificateDomain(String domain) {
+        return ReflectionTestUtils.invokeMethod(provider, "toCertificateDomain", domain);
+    }
+}
@@ -0,0 +1,161 @@
+package com.ssltest.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通过UDP查询本地DNS服务，校验TXT应答、NODATA和NXDOMAIN
+ */
+class LocalDnsProviderTest {
+
+    private static final String RECORD = "_acme-challenge.tenant.example.com";
+    private static final int TYPE_A = 1;
+    private static final int TYPE_TXT = 16;
+    private static final int FLAG_AUTHORITATIVE = 0x0400;
+    private static final int RCODE_MASK = 0x000F;
+    private static final int RCODE_NOERROR = 0;
+    private static final int RCODE_NXDOMAIN = 3;
+
+    private static final class Response {
+        private int id;
+        private int flags;
+        private final Set<String> texts = new HashSet<>();
+    }
+
+    private LocalDnsProvider provider;
+
+    private DatagramSocket client;
+
+    private int queryId;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provider = new LocalDnsProvider();
+        ReflectionTestUtils.setField(provider, "host", "127.0.0.1");
+        ReflectionTestUtils.setField(provider, "port", 0);
+        ReflectionTestUtils.setField(provider, "ttl", 60);
+        provider.start();
+        client = new DatagramSocket();
+        client.setSoTimeout(2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        provider.stop();
+    }
+
+    @Test
+    void answersAllTxtValuesForRecord() throws IOException {
+        // 同时验证 example.com 和 *.example.com 时，同一记录名下有两个值
+        provider.addTxtRecord(RECORD, "digest-base");
+        provider.addTxtRecord(RECORD, "digest-wildcard");
+
+        Response response = query("_ACME-Challenge.Tenant.Example.COM.", TYPE_TXT);
+
+        assertEquals(queryId, response.id);
+        assertEquals(RCODE_NOERROR, response.flags & RCODE_MASK);
+        assertTrue((response.flags & FLAG_AUTHORITATIVE) != 0);
+        assertEquals(new HashSet<>(Arrays.asList("digest-base", "digest-wildcard")), response.texts);
+    }
+
+    @Test
+    void returnsNoDataForOtherTypes() throws IOException {
+        provider.addTxtRecord(RECORD, "digest");
+
+        Response response = query(RECORD, TYPE_A);
+
+        assertEquals(RCODE_NOERROR, response.flags & RCODE_MASK);
+        assertTrue(response.texts.isEmpty());
+    }
+
+    @Test
+    void returnsNxdomainForUnknownName() throws IOException {
+        Response response = query("_acme-challenge.other.example.com", TYPE_TXT);
+
+        assertEquals(RCODE_NXDOMAIN, response.flags & RCODE_MASK);
+        assertTrue(response.texts.isEmpty());
+    }
+
+    @Test
+    void returnsNxdomainAfterLastValueRemoved() throws IOException {
+        provider.addTxtRecord(RECORD, "first");
+        provider.addTxtRecord(RECORD, "second");
+        provider.removeTxtRecord(RECORD, "first");
+
+        assertEquals(new HashSet<>(Arrays.asList("second")), query(RECORD, TYPE_TXT).texts);
+
+        provider.removeTxtRecord(RECORD, "second");
+
+        assertEquals(RCODE_NXDOMAIN, query(RECORD, TYPE_TXT).flags & RCODE_MASK);
+    }
+
+    private Response query(String name, int type) throws IOException {
+        queryId = (queryId + 0x1234) & 0xFFFF;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(queryId);
+        out.writeShort(0x0100);
+        out.writeShort(1);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+        for (String label : name.split("\\.")) {
+            out.writeByte(label.length());
+            out.write(label.getBytes(StandardCharsets.US_ASCII));
+        }
+        out.writeByte(0);
+        out.writeShort(type);
+        out.writeShort(1);
+        byte[] request = bytes.toByteArray();
+
+        DatagramSocket server = (DatagramSocket) ReflectionTestUtils.getField(provider, "socket");
+        client.send(new DatagramPacket(request, request.length, InetAddress.getLoopbackAddress(), server.getLocalPort()));
+        DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        client.receive(packet);
+        return parse(packet.getData());
+    }
+
+    private Response parse(byte[] data) {
+        Response response = new Response();
+        response.id = readShort(data, 0);
+        response.flags = readShort(data, 2);
+        int answerCount = readShort(data, 6);
+        int pos = 12;
+        while (data[pos] != 0) {
+            pos += 1 + (data[pos] & 0xFF);
+        }
+        pos += 5;
+        for (int i = 0; i < answerCount; i++) {
+            // 应答名使用指向问题区的压缩指针
+            assertEquals(0xC00C, readShort(data, pos));
+            assertEquals(TYPE_TXT, readShort(data, pos + 2));
+            int length = readShort(data, pos + 10);
+            int textLength = data[pos + 12] & 0xFF;
+            assertEquals(length, textLength + 1);
+            response.texts.add(new String(data, pos + 13, textLength, StandardCharsets.US_ASCII));
+            pos += 12 + length;
+        }
+        return response;
+    }
+
+    private int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+}